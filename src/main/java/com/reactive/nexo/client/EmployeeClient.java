@@ -2,6 +2,7 @@ package com.reactive.nexo.client;
 
 import com.reactive.nexo.dto.LoginRequest;
 import com.reactive.nexo.dto.AuthResponse;
+import com.reactive.nexo.gateway.UpstreamClientRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
@@ -9,12 +10,35 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
-import java.util.Arrays;
 
+import java.time.Duration;
+
+/**
+ * Llamadas al módulo de empleados. El servicio (y con él la URL base) y el prefijo
+ * de rutas salen de {@code employees.client}, y cada llamada tiene su propio plazo
+ * máximo para que un upstream lento no retenga los logins indefinidamente.
+ */
 @Component
 @Slf4j
 public class EmployeeClient {
-    private WebClient client = WebClient.create("http://localhost:8081");
+    private final WebClient client;
+    private final String basePath;
+    private final Duration authenticateTimeout;
+    private final Duration lookupTimeout;
+    private final Duration updateTimeout;
+
+    public EmployeeClient(UpstreamClientRegistry clientRegistry,
+                          @Value("${employees.client.service:employees}") String serviceName,
+                          @Value("${employees.client.base-path:/api/v1/employees}") String basePath,
+                          @Value("${employees.client.authenticate-timeout:3s}") Duration authenticateTimeout,
+                          @Value("${employees.client.lookup-timeout:2s}") Duration lookupTimeout,
+                          @Value("${employees.client.update-timeout:3s}") Duration updateTimeout) {
+        this.client = clientRegistry.client(serviceName);
+        this.basePath = basePath;
+        this.authenticateTimeout = authenticateTimeout;
+        this.lookupTimeout = lookupTimeout;
+        this.updateTimeout = updateTimeout;
+    }
 
     /**
      * Call the employees module to authenticate a user
@@ -32,12 +56,13 @@ public class EmployeeClient {
         );
 
         return client.post()
-                .uri("/api/v1/employees/authenticate")
+                .uri(basePath + "/authenticate")
                 .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON)
             .bodyValue(payload)
                 .retrieve()
                 .bodyToMono(AuthResponse.class)
+                .timeout(authenticateTimeout)
                 .doOnSuccess(resp -> log.info("EmployeeClient.authenticate - Auth successful for user id: {}", resp.getId()))
                 .doOnError(err -> {
                     if (err instanceof WebClientResponseException) {
@@ -49,19 +74,21 @@ public class EmployeeClient {
     }
     public Mono<AuthResponse> getEmployee(String identificationType, String identificationNumber) {
         return client.get()
-                .uri("/api/v1/employees/by-identification/{identificationType}/{identificationNumber}", identificationType, identificationNumber)
+                .uri(basePath + "/by-identification/{identificationType}/{identificationNumber}", identificationType, identificationNumber)
                 .retrieve()
                 .bodyToMono(AuthResponse.class)
+                .timeout(lookupTimeout)
                 .doOnSuccess(resp -> log.info("EmployeeClient.getEmployee - Retrieved employee with id: XXX#{}", resp.getId()))
                 .doOnError(err -> log.error("EmployeeClient.getEmployee - Failed to update 2FA secret for employeeIdentification: {}: {}", identificationNumber, err.getMessage()));
     }   
     public Mono<Boolean> updateTwoFactorSecret(String employeeId, String newSecret) {
         return client.patch()
-                .uri("/api/v1/employees/{id}", employeeId)
+                .uri(basePath + "/{id}", employeeId)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue("{ \"secret\": \"" + newSecret + "\" }")
                 .retrieve()
                 .bodyToMono(Void.class)
+                .timeout(updateTimeout)
                 .doOnSuccess(v -> log.info("EmployeeClient.updateTwoFactorSecret - 2FA secret updated for employeeId: {}", employeeId))
                 .doOnError(err -> log.error("EmployeeClient.updateTwoFactorSecret - Failed to update 2FA secret for employeeId: {}: {}", employeeId, err.getMessage()))
                 .thenReturn(true)
@@ -69,9 +96,10 @@ public class EmployeeClient {
     }     
     public Mono<Boolean> resetPassword(String identificationType, String identificationNumber) {
         return client.get()
-                .uri("/api/v1/employees/reset-password/{identificationType}/{identificationNumber}", identificationType, identificationNumber)
+                .uri(basePath + "/reset-password/{identificationType}/{identificationNumber}", identificationType, identificationNumber)
                 .retrieve()
                 .bodyToMono(String.class)
+                .timeout(updateTimeout)
                 .doOnSuccess(v -> log.info("EmployeeClient.resetPassword - Password reset for user: {}/{}", identificationType, identificationNumber))
                 .doOnError(err -> log.error("EmployeeClient.resetPassword - Failed to reset password for user: {}/{}: {}", identificationType, identificationNumber, err.getMessage()))
                 .thenReturn(true)
@@ -0,0 +1,159 @@
+package com.reactive.nexo.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.reactive.nexo.dto.AuthResponse;
+import com.reactive.nexo.dto.LoginRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Perfiles de empleado por identificación (tipo/número) delante de {@link EmployeeClient}.
+ * <p>
+ * Los perfiles se guardan {@code ttl} tras leerlos o tras un login correcto, y se
+ * invalidan cuando el gateway cambia el secreto 2FA o la contraseña del empleado.
+ * Las llamadas concurrentes iguales (misma identificación, o mismas credenciales en
+ * el login) se agrupan en una sola contra el módulo de empleados, que sale del mapa
+ * en cuanto termina.
+ */
+@Component
+public class EmployeeProfileCache {
+
+    private final EmployeeClient employeeClient;
+    private final boolean enabled;
+    private final Cache<String, AuthResponse> profiles;
+    private final Map<String, Mono<AuthResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder authentications = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public EmployeeProfileCache(EmployeeClient employeeClient,
+                                @Value("${employees.profile-cache.ttl:60s}") Duration ttl,
+                                @Value("${employees.profile-cache.max-size:10000}") long maxSize) {
+        this.employeeClient = employeeClient;
+        this.enabled = !ttl.isZero() && maxSize > 0;
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, maxSize))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Perfil del empleado, de la caché si está vigente.
+     */
+    public Mono<AuthResponse> getEmployee(String identificationType, String identificationNumber) {
+        String key = key(identificationType, identificationNumber);
+        return Mono.defer(() -> {
+            AuthResponse cached = enabled ? profiles.getIfPresent(key) : null;
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return singleFlight("lookup|" + key, () -> {
+                lookups.increment();
+                return employeeClient.getEmployee(identificationType, identificationNumber)
+                        .doOnNext(profile -> store(key, profile));
+            });
+        });
+    }
+
+    /**
+     * Autentica contra el módulo de empleados; los intentos simultáneos con las mismas
+     * credenciales comparten la llamada. Un login correcto deja el perfil en caché.
+     */
+    public Mono<AuthResponse> authenticate(LoginRequest request) {
+        String key = key(request.getIdentification_type(), request.getIdentification_number());
+        String password = request.getPassword() != null ? request.getPassword() : "";
+        return singleFlight("auth|" + key + "|" + sha256(password), () -> {
+            authentications.increment();
+            return employeeClient.authenticate(request)
+                    .doOnNext(profile -> store(key, profile));
+        });
+    }
+
+    public void invalidate(String identificationType, String identificationNumber) {
+        invalidations.increment();
+        profiles.invalidate(key(identificationType, identificationNumber));
+    }
+
+    public void invalidateAll() {
+        invalidations.increment();
+        profiles.invalidateAll();
+    }
+
+    public Map<String, Object> snapshot() {
+        CacheStats stats = profiles.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("size", profiles.estimatedSize());
+        snapshot.put("hits", stats.hitCount());
+        snapshot.put("misses", stats.missCount());
+        snapshot.put("hitRate", stats.hitRate());
+        snapshot.put("evictions", stats.evictionCount());
+        snapshot.put("invalidations", invalidations.sum());
+        snapshot.put("lookups", lookups.sum());
+        snapshot.put("authentications", authentications.sum());
+        snapshot.put("coalesced", coalesced.sum());
+        snapshot.put("inFlight", inFlight.size());
+        return snapshot;
+    }
+
+    private Mono<AuthResponse> singleFlight(String key, Supplier<Mono<AuthResponse>> call) {
+        return Mono.defer(() -> {
+            Mono<AuthResponse> existing = inFlight.get(key);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            AtomicReference<Mono<AuthResponse>> self = new AtomicReference<>();
+            Mono<AuthResponse> shared = Mono.defer(call)
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .flux()
+                    .replay(1)
+                    .refCount()
+                    .next();
+            self.set(shared);
+            Mono<AuthResponse> winner = inFlight.putIfAbsent(key, shared);
+            if (winner != null) {
+                coalesced.increment();
+                return winner;
+            }
+            return shared;
+        });
+    }
+
+    private void store(String key, AuthResponse profile) {
+        if (enabled) {
+            profiles.put(key, profile);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(String identificationType, String identificationNumber) {
+        return identificationType + "/" + identificationNumber;
+    }
+}
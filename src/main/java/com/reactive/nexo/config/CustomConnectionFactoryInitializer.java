@@ -15,7 +15,9 @@ public class CustomConnectionFactoryInitializer {
         ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
         initializer.setConnectionFactory(connectionFactory);
         CompositeDatabasePopulator populator = new CompositeDatabasePopulator();
-        populator.addPopulators(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")));
+        // schema.sql usa particiones y tsvector de PostgreSQL; H2 tiene su propio esquema
+        boolean h2 = connectionFactory.getMetadata().getName().contains("H2");
+        populator.addPopulators(new ResourceDatabasePopulator(new ClassPathResource(h2 ? "schema-h2.sql" : "schema.sql")));
         initializer.setDatabasePopulator(populator);
         return initializer;
     }
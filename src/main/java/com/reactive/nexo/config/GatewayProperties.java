@@ -0,0 +1,337 @@
+package com.reactive.nexo.config;
+
+import com.reactive.nexo.gateway.LoadBalancer;
+import com.reactive.nexo.gateway.RateLimiter;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuración del gateway: servicios upstream y tabla de rutas (prefijo "gateway").
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway")
+public class GatewayProperties {
+
+    private Proxy proxy = new Proxy();
+
+    /** Configuración por defecto del circuit breaker de cada ruta. */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /** Caché de respuestas GET; cada ruta la activa con routes[].cache.enabled. */
+    private Cache cache = new Cache();
+
+    /** Agrupación de GET idénticos en curso; cada ruta la activa con routes[].coalesce.enabled. */
+    private Coalesce coalesce = new Coalesce();
+
+    /** Configuración por defecto del límite adaptativo de concurrencia de cada ruta. */
+    private Limiter limiter = new Limiter();
+
+    /** Política de reintentos por defecto de cada ruta. */
+    private Retry retry = new Retry();
+
+    /** Política de hedging por defecto de cada ruta. */
+    private Hedge hedge = new Hedge();
+
+    /** Límite global de carga extra generada por reintentos y hedges. */
+    private RetryBudget retryBudget = new RetryBudget();
+
+    /** Log de acceso estructurado y asíncrono. */
+    private AccessLog accessLog = new AccessLog();
+
+    /** Registro en la tabla tracking de las peticiones proxy. */
+    private Tracking tracking = new Tracking();
+
+    /** Límites de tasa por cliente (IP, identificación o empleado). */
+    private RateLimit rateLimit = new RateLimit();
+
+    /** Servicios upstream por nombre (users, employees, schedule...). */
+    private Map<String, Service> services = new LinkedHashMap<>();
+
+    /** Rutas proxy; cada una apunta a un servicio de {@link #services}. */
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    public static class Proxy {
+        /** Tamaño máximo del body reenviado en bytes (-1 = sin límite). */
+        private long maxBodyBytes = -1;
+        /** Tiempo máximo de espera de la respuesta del upstream (null = sin límite). */
+        private Duration responseTimeout;
+    }
+
+    /**
+     * Límite adaptativo de peticiones en curso por ruta; ver {@code AdaptiveLimiter}.
+     */
+    @Data
+    public static class Limiter {
+        private boolean enabled = true;
+        private int initialLimit = 20;
+        private int minLimit = 5;
+        private int maxLimit = 200;
+        /** Peso del nuevo valor al suavizar el límite (0-1). */
+        private double smoothing = 0.2;
+        /** Cuánto puede crecer el RTT respecto a la media larga antes de bajar el límite. */
+        private double rttTolerance = 1.5;
+        /** Muestras que abarca la media larga de RTT. */
+        private int longWindowSamples = 600;
+        /** Duración y muestras mínimas de cada ventana de recálculo. */
+        private Duration window = Duration.ofSeconds(1);
+        private int minWindowSamples = 10;
+        /** Peticiones que pueden esperar hueco (0 = rechazar directamente). */
+        private int maxQueue = 50;
+        private Duration maxWait = Duration.ofMillis(50);
+    }
+
+    /**
+     * Reintentos con backoff exponencial y jitter. Solo se aplican a métodos
+     * idempotentes salvo que la ruta active {@code non-idempotent}; las peticiones
+     * con body solo se reintentan si su Content-Length no supera
+     * {@code max-buffered-body-bytes}, porque el body hay que guardarlo para repetirlo.
+     */
+    @Data
+    public static class Retry {
+        /** Reintentos además del primer intento (0 = sin reintentos). */
+        private int maxRetries = 0;
+        private Duration backoff = Duration.ofMillis(50);
+        private Duration maxBackoff = Duration.ofMillis(500);
+        /** Fracción aleatoria del backoff (0-1). */
+        private double jitter = 0.5;
+        /** Status del upstream que se reintentan. */
+        private List<Integer> statuses = new ArrayList<>(List.of(502, 503, 504));
+        /** Permite reintentar y hacer hedging de POST/PATCH en esta ruta. */
+        private boolean nonIdempotent = false;
+        private long maxBufferedBodyBytes = 64 * 1024;
+    }
+
+    /**
+     * Hedging: si el primer intento no ha respondido tras el percentil
+     * {@code percentile} de latencia de la ruta se lanza una segunda copia; gana la
+     * primera respuesta y la otra se cancela.
+     */
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        private double percentile = 95;
+        /** Límites del retardo calculado; max-delay se usa mientras no hay muestras suficientes. */
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Presupuesto de reintentos: en la ventana, reintentos y hedges no pueden superar
+     * {@code ratio} de las peticiones más {@code min-retries-per-second} por segundo.
+     */
+    @Data
+    public static class RetryBudget {
+        private double ratio = 0.1;
+        private int minRetriesPerSecond = 5;
+        private Duration window = Duration.ofSeconds(10);
+    }
+
+    /**
+     * Un evento por petición, escrito por un hilo propio desde un buffer acotado.
+     * Las respuestas 5xx se registran siempre; el resto según la tasa de muestreo de
+     * su ruta.
+     */
+    @Data
+    public static class AccessLog {
+        private boolean enabled = true;
+        /** Eventos pendientes de escribir; si se llena, se descartan y se cuentan. */
+        private int capacity = 8192;
+        /** Fracción de peticiones registradas (0-1). */
+        private double sampleRate = 1.0;
+        /** Tasa de muestreo por id de ruta. */
+        private Map<String, Double> routes = new LinkedHashMap<>();
+        /** Parámetros de query cuyo valor se oculta. */
+        private List<String> redactedParams = new ArrayList<>(List.of("token", "access_token", "password", "secret", "code"));
+    }
+
+    @Data
+    public static class Tracking {
+        private boolean enabled = true;
+        /** Fracción de peticiones registradas (0-1); los 5xx se registran siempre, sin payloads. */
+        private double sampleRate = 1.0;
+        /** Tasa de muestreo por id de ruta. */
+        private Map<String, Double> routes = new LinkedHashMap<>();
+        /** Bytes de cada payload (petición y respuesta) que se guardan; 0 = no se guardan. */
+        private int maxPayloadBytes = 0;
+    }
+
+    @Data
+    public static class RateLimit {
+        private boolean enabled = true;
+        /** Particiones de la tabla de buckets de cada regla. */
+        private int shards = 16;
+        /** Claves por regla; por encima, las claves nuevas comparten un bucket de desbordamiento. */
+        private int maxKeys = 100_000;
+        /** Cada cuánto se eliminan los buckets llenos, que equivalen a no tener bucket. */
+        private Duration sweepInterval = Duration.ofSeconds(30);
+        /** Reglas de los endpoints propios del gateway (auth, 2FA...). */
+        private List<RateLimitRule> rules = new ArrayList<>();
+    }
+
+    /**
+     * Token bucket de {@code limit} peticiones por {@code period} y capacidad
+     * {@code burst}, uno por cada valor de la clave.
+     */
+    @Data
+    public static class RateLimitRule {
+        /** Identificador de la regla; por defecto el path. */
+        private String id;
+        /** Prefijo por segmentos del path completo, por ejemplo /api/v1/auth/login; en routes[], el de la ruta. */
+        private String path;
+        /** Clave del bucket; por defecto IP en rate-limit.rules y EMPLOYEE en routes[]. */
+        private RateLimiter.KeyType key;
+        private int limit = 100;
+        private Duration period = Duration.ofMinutes(1);
+        /** Peticiones seguidas admitidas con el bucket lleno (null = limit). */
+        private Integer burst;
+    }
+
+    @Data
+    public static class Service {
+        /** URL de una única instancia; equivale a instances: [url]. */
+        private String url;
+        /** URLs de las instancias del servicio entre las que se reparte la carga. */
+        private List<String> instances = new ArrayList<>();
+        private LoadBalancer.Strategy loadBalancer = LoadBalancer.Strategy.ROUND_ROBIN;
+        private HealthCheck healthCheck = new HealthCheck();
+        private Pool pool = new Pool();
+        /** Bulkhead: peticiones en curso permitidas hacia el servicio (0 = sin límite). */
+        private int maxConcurrentRequests = 200;
+
+        /** Instancias configuradas: instances o, si está vacío, url. */
+        public List<String> instanceUrls() {
+            if (!instances.isEmpty()) {
+                return instances;
+            }
+            return url != null ? List.of(url) : List.of();
+        }
+    }
+
+    /**
+     * Sondeo activo de las instancias: una instancia que falla {@code unhealthyThreshold}
+     * veces seguidas deja de recibir tráfico hasta que responde bien
+     * {@code healthyThreshold} veces. Cualquier respuesta por debajo de 500 cuenta como sana.
+     */
+    @Data
+    public static class HealthCheck {
+        private boolean enabled = true;
+        private String path = "/actuator/health";
+        private Duration interval = Duration.ofSeconds(10);
+        private Duration timeout = Duration.ofSeconds(2);
+        private int unhealthyThreshold = 2;
+        private int healthyThreshold = 1;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        /** Ventana deslizante de observación, en buckets de un segundo. */
+        private Duration window = Duration.ofSeconds(10);
+        /** Llamadas mínimas en la ventana antes de evaluar las tasas. */
+        private int minimumCalls = 20;
+        /** Porcentaje de fallos (errores o 5xx) que abre el circuito. */
+        private int failureRateThreshold = 50;
+        /** Porcentaje de llamadas lentas que abre el circuito. */
+        private int slowCallRateThreshold = 80;
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+        /** Tiempo en estado abierto antes de permitir llamadas de prueba. */
+        private Duration waitInOpen = Duration.ofSeconds(10);
+        /** Llamadas de prueba en half-open; si todas van bien el circuito se cierra. */
+        private int halfOpenCalls = 5;
+    }
+
+    /**
+     * Pool de conexiones Reactor Netty de un servicio upstream.
+     */
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        /** Peticiones que pueden esperar una conexión libre (-1 = sin límite). */
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        /** Intervalo de expulsión en segundo plano de conexiones inactivas o expiradas (0 = desactivado). */
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private boolean keepAlive = true;
+        /** Protocolos: HTTP11, H2 (requiere https) o H2C. */
+        private List<HttpProtocol> protocols = new ArrayList<>(List.of(HttpProtocol.HTTP11));
+        /** Streams concurrentes por conexión HTTP/2. */
+        private long maxConcurrentStreams = 100;
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        /** Presupuesto total de la caché en bytes (body + headers). */
+        private long maxBytes = 64L * 1024 * 1024;
+        /** Respuestas más grandes no se guardan. */
+        private int maxEntryBytes = 1024 * 1024;
+        /** Tiempo máximo que una entrada (aunque esté vencida) se conserva para revalidación. */
+        private Duration maxRetention = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class RouteCache {
+        private boolean enabled = false;
+        /** Vigencia cuando el upstream no envía max-age (0 = solo se guarda si hay ETag o Last-Modified). */
+        private Duration ttl = Duration.ZERO;
+        /**
+         * Separa las entradas por empleado (x-employee-id). Sin esta opción las entradas se
+         * comparten y solo se guardan respuestas con public, s-maxage o must-revalidate.
+         */
+        private boolean perEmployee = false;
+        /** Headers de la petición que forman parte de la clave. */
+        private List<String> varyHeaders = new ArrayList<>(List.of("Accept"));
+    }
+
+    @Data
+    public static class Coalesce {
+        /** Respuestas más grandes no se comparten: cada petición hace su propia llamada. */
+        private int maxBodyBytes = 1024 * 1024;
+    }
+
+    @Data
+    public static class RouteCoalesce {
+        /** Agrupa GET idénticos de peticiones con los mismos permisos. */
+        private boolean enabled = false;
+        /** Agrupa solo las del mismo empleado (x-employee-id), para respuestas propias de cada usuario. */
+        private boolean perEmployee = false;
+    }
+
+    @Data
+    public static class Route {
+        /** Identificador de la ruta; por defecto el patrón. */
+        private String id;
+        /** Prefijo por segmentos, por ejemplo /api/v1/users; el segmento "*" acepta cualquier valor. */
+        private String path;
+        private String service;
+        /** Sobrescribe gateway.proxy.response-timeout para esta ruta. */
+        private Duration responseTimeout;
+        /** Sobrescribe gateway.proxy.max-body-bytes para esta ruta. */
+        private Long maxBodyBytes;
+        /** Sobrescribe gateway.circuit-breaker para esta ruta. */
+        private CircuitBreaker circuitBreaker;
+        private RouteCache cache = new RouteCache();
+        private RouteCoalesce coalesce = new RouteCoalesce();
+        /** Sobrescribe gateway.limiter para esta ruta. */
+        private Limiter limiter;
+        /** Sobrescribe gateway.retry para esta ruta. */
+        private Retry retry;
+        /** Sobrescribe gateway.hedge para esta ruta. */
+        private Hedge hedge;
+        /** Límite de tasa de la ruta; por defecto por empleado (employee_id del JWT). */
+        private RateLimitRule rateLimit;
+    }
+}
@@ -0,0 +1,299 @@
+package com.reactive.nexo.controller;
+
+import com.reactive.nexo.client.EmployeeProfileCache;
+import com.reactive.nexo.gateway.AccessLog;
+import com.reactive.nexo.gateway.RateLimiter;
+import com.reactive.nexo.gateway.RequestCoalescer;
+import com.reactive.nexo.gateway.ResponseCache;
+import com.reactive.nexo.gateway.RetryBudget;
+import com.reactive.nexo.gateway.RouteDescriptor;
+import com.reactive.nexo.gateway.RouteRegistry;
+import com.reactive.nexo.gateway.UpstreamClientRegistry;
+import com.reactive.nexo.repository.TrackingQueries;
+import com.reactive.nexo.repository.TrackingTextIndex;
+import com.reactive.nexo.security.RolePermissionTable;
+import com.reactive.nexo.security.TokenRevocationService;
+import com.reactive.nexo.service.LoginMetrics;
+import com.reactive.nexo.service.TrackingPartitionManager;
+import com.reactive.nexo.service.TrackingRollups;
+import com.reactive.nexo.service.TrackingWriter;
+import com.reactive.nexo.util.JwtUtil;
+import com.reactive.nexo.util.QrCodeRenderer;
+import com.reactive.nexo.util.TotpVerifier;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/gateway")
+@RequiredArgsConstructor
+@Tag(name = "Gateway admin", description = "Estado interno del gateway")
+public class GatewayAdminController {
+
+    private final RouteRegistry routeRegistry;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final UpstreamClientRegistry clientRegistry;
+    private final RetryBudget retryBudget;
+    private final JwtUtil jwtUtil;
+    private final RolePermissionTable rolePermissionTable;
+    private final AccessLog accessLog;
+    private final TokenRevocationService tokenRevocationService;
+    private final TotpVerifier totpVerifier;
+    private final QrCodeRenderer qrCodeRenderer;
+    private final EmployeeProfileCache employeeProfileCache;
+    private final LoginMetrics loginMetrics;
+    private final RateLimiter rateLimiter;
+    private final TrackingWriter trackingWriter;
+    private final TrackingQueries trackingQueries;
+    private final TrackingPartitionManager trackingPartitionManager;
+    private final TrackingRollups trackingRollups;
+    private final TrackingTextIndex trackingTextIndex;
+
+    @Operation(
+        summary = "Estado de circuit breakers, bulkheads y límites adaptativos",
+        description = "Devuelve por ruta el estado del circuit breaker, el límite adaptativo y el bulkhead de su servicio upstream"
+    )
+    @GetMapping("/resilience")
+    public Flux<Map<String, Object>> getResilience() {
+        return Flux.fromIterable(routeRegistry.getRoutes())
+                .map(this::resilienceOf);
+    }
+
+    @Operation(
+        summary = "Estado de las instancias upstream",
+        description = "Devuelve por servicio la estrategia de balanceo y la salud y peticiones en curso de cada instancia"
+    )
+    @GetMapping("/upstreams")
+    public Flux<Map<String, Object>> getUpstreams() {
+        return Flux.fromIterable(clientRegistry.getLoadBalancers().values())
+                .map(loadBalancer -> loadBalancer.snapshot());
+    }
+
+    @Operation(
+        summary = "Reintentos y hedging",
+        description = "Uso del presupuesto global de reintentos, reintentos y hedges lanzados y rechazados"
+    )
+    @GetMapping("/retries")
+    public Mono<Map<String, Object>> getRetries() {
+        return Mono.just(retryBudget.snapshot());
+    }
+
+    @Operation(
+        summary = "Estadísticas de la caché de tokens verificados",
+        description = "Entradas, aciertos, fallos y expulsiones de la caché de claims de JwtUtil"
+    )
+    @GetMapping("/token-cache")
+    public Mono<Map<String, Object>> getTokenCache() {
+        return Mono.just(jwtUtil.cacheStats());
+    }
+
+    @Operation(
+        summary = "Vaciar la caché de tokens verificados",
+        description = "Obliga a verificar de nuevo la firma de todos los tokens"
+    )
+    @DeleteMapping("/token-cache")
+    public Mono<ResponseEntity<Void>> invalidateTokenCache() {
+        jwtUtil.invalidateAll();
+        return Mono.just(ResponseEntity.noContent().build());
+    }
+
+    @Operation(
+        summary = "Tabla local de permisos por rol",
+        description = "Roles cargados con la versión de su conjunto de permisos (tokens compactos)"
+    )
+    @GetMapping("/roles")
+    public Mono<Map<String, Object>> getRoles() {
+        return Mono.just(rolePermissionTable.snapshot());
+    }
+
+    @Operation(
+        summary = "Invalidar la tabla de permisos por rol",
+        description = "Sin parámetros vacía la tabla; con role solo ese rol. Se recargan en la siguiente petición"
+    )
+    @DeleteMapping("/roles")
+    public Mono<ResponseEntity<Void>> invalidateRoles(@RequestParam(required = false) Integer role) {
+        if (role != null) {
+            rolePermissionTable.invalidate(role);
+        } else {
+            rolePermissionTable.invalidateAll();
+        }
+        return Mono.just(ResponseEntity.noContent().build());
+    }
+
+    @Operation(
+        summary = "Estado del log de acceso",
+        description = "Eventos encolados, escritos, descartados por buffer lleno y no muestreados"
+    )
+    @GetMapping("/access-log")
+    public Mono<Map<String, Object>> getAccessLog() {
+        return Mono.just(accessLog.snapshot());
+    }
+
+    @Operation(
+        summary = "Estado de la revocación de tokens",
+        description = "Tokens revocados vigentes, tamaño del filtro de Bloom, consultas a base de datos y falsos positivos"
+    )
+    @GetMapping("/revocations")
+    public Mono<Map<String, Object>> getRevocations() {
+        return Mono.just(tokenRevocationService.snapshot());
+    }
+
+    @Operation(
+        summary = "Verificación de códigos 2FA",
+        description = "Códigos aceptados (y cuántos con desfase de reloj), rechazados y repetidos"
+    )
+    @GetMapping("/two-factor")
+    public Mono<Map<String, Object>> getTwoFactor() {
+        return Mono.just(totpVerifier.snapshot());
+    }
+
+    @Operation(
+        summary = "Generación de códigos QR",
+        description = "QR generados, rechazados por saturación, tiempo de cola y de render, y tiempo de CPU sacado del event loop"
+    )
+    @GetMapping("/qr")
+    public Mono<Map<String, Object>> getQr() {
+        return Mono.just(qrCodeRenderer.snapshot());
+    }
+
+    @Operation(
+        summary = "Caché de perfiles de empleado",
+        description = "Entradas, aciertos, llamadas al módulo de empleados y llamadas agrupadas (single-flight)"
+    )
+    @GetMapping("/employees")
+    public Mono<Map<String, Object>> getEmployeeProfiles() {
+        return Mono.just(employeeProfileCache.snapshot());
+    }
+
+    @Operation(
+        summary = "Invalidar la caché de perfiles de empleado",
+        description = "Sin parámetros vacía la caché; con type y number solo ese empleado"
+    )
+    @DeleteMapping("/employees")
+    public Mono<ResponseEntity<Void>> invalidateEmployeeProfiles(@RequestParam(required = false) String type,
+                                                                 @RequestParam(required = false) String number) {
+        if (type != null && number != null) {
+            employeeProfileCache.invalidate(type, number);
+        } else {
+            employeeProfileCache.invalidateAll();
+        }
+        return Mono.just(ResponseEntity.noContent().build());
+    }
+
+    @Operation(
+        summary = "Latencia del login por fase",
+        description = "Autenticación, verificación 2FA y firma del token: muestras, fallos, media y percentiles"
+    )
+    @GetMapping("/login")
+    public Mono<Map<String, Object>> getLogin() {
+        return Mono.just(loginMetrics.snapshot());
+    }
+
+    @Operation(
+        summary = "Límites de tasa",
+        description = "Por regla: política, claves con bucket, peticiones admitidas y rechazadas, desbordamientos y buckets eliminados"
+    )
+    @GetMapping("/rate-limits")
+    public Mono<Map<String, Object>> getRateLimits() {
+        return Mono.just(rateLimiter.snapshot());
+    }
+
+    @Operation(
+        summary = "Escritura por lotes del tracking",
+        description = "Profundidad de la cola, registros encolados, descartados y escritos, tamaño de lote y latencia de cada INSERT"
+    )
+    @GetMapping("/tracking-writer")
+    public Mono<Map<String, Object>> getTrackingWriter() {
+        return Mono.just(trackingWriter.snapshot());
+    }
+
+    @Operation(
+        summary = "Plantillas SQL de las consultas de tracking",
+        description = "Formas de consulta compiladas y aciertos/fallos al reutilizar su SQL"
+    )
+    @GetMapping("/tracking-queries")
+    public Mono<Map<String, Object>> getTrackingQueries() {
+        return Mono.just(trackingQueries.snapshot());
+    }
+
+    @Operation(
+        summary = "Particiones y retención del tracking",
+        description = "Particiones actuales, creadas, borradas o separadas, filas expiradas borradas y última pasada"
+    )
+    @GetMapping("/tracking-partitions")
+    public Mono<Map<String, Object>> getTrackingPartitions() {
+        return Mono.just(trackingPartitionManager.snapshot());
+    }
+
+    @Operation(
+        summary = "Agregados del tracking",
+        description = "Celdas en memoria, eventos sumados, desbordados a (other), escrituras a tracking_rollup y su latencia"
+    )
+    @GetMapping("/tracking-rollups")
+    public Mono<Map<String, Object>> getTrackingRollups() {
+        return Mono.just(trackingRollups.snapshot());
+    }
+
+    @Operation(
+        summary = "Índice de texto en memoria del tracking",
+        description = "Solo activo fuera de PostgreSQL: filas y palabras indexadas, última fila leída, expulsiones y búsquedas"
+    )
+    @GetMapping("/tracking-text-index")
+    public Mono<Map<String, Object>> getTrackingTextIndex() {
+        return Mono.just(trackingTextIndex.snapshot());
+    }
+
+    @Operation(
+        summary = "Estadísticas de la caché de respuestas",
+        description = "Entradas, bytes ocupados, expulsiones y aciertos/fallos por ruta"
+    )
+    @GetMapping("/cache")
+    public Mono<Map<String, Object>> getCache() {
+        return Mono.just(responseCache.snapshot());
+    }
+
+    @Operation(
+        summary = "Invalidar la caché de respuestas",
+        description = "Sin parámetros invalida toda la caché; con route solo las entradas de esa ruta"
+    )
+    @DeleteMapping("/cache")
+    public Mono<ResponseEntity<Void>> invalidateCache(@RequestParam(required = false) String route) {
+        if (route != null) {
+            responseCache.invalidateRoute(route);
+        } else {
+            responseCache.invalidateAll();
+        }
+        return Mono.just(ResponseEntity.noContent().build());
+    }
+
+    @Operation(
+        summary = "Estadísticas de agrupación de GET",
+        description = "Llamadas en curso y, por ruta, peticiones líderes, agrupadas y que no se pudieron compartir"
+    )
+    @GetMapping("/coalescing")
+    public Mono<Map<String, Object>> getCoalescing() {
+        return Mono.just(requestCoalescer.snapshot());
+    }
+
+    private Map<String, Object> resilienceOf(RouteDescriptor route) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("route", route.getId());
+        state.put("service", route.getServiceName());
+        state.put("circuitBreaker", route.getCircuitBreaker().snapshot());
+        state.put("bulkhead", route.getBulkhead().snapshot());
+        state.put("limiter", route.getLimiter().snapshot());
+        return state;
+    }
+}
@@ -1,224 +1,47 @@
 package com.reactive.nexo.controller;
 
-import org.springframework.http.ResponseEntity;
+import com.reactive.nexo.service.GatewayService;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
-import org.springframework.http.HttpStatus;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.http.MediaType;
-import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
-import java.nio.charset.StandardCharsets;
-import com.reactive.nexo.security.PermissionChecker;
-import java.util.HashMap;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.stream.Collectors;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
 
 @RestController
 public class GatewayController {
 
+    private final GatewayService gatewayService;
 
-    // Inyectar las URLs desde application.properties
-    //@Value("${service.users.url}")
-    private final String error = "Gateway Error: Unknown service for path ";
-
-    // URLs de servicios internos (usando nombres de contenedor Docker)
-    //@Value("${service.users.url}")
-    private String urlUsers = System.getenv().getOrDefault("USERS_SERVICE_URL", "http://localhost:8082");
-
-    //@Value("${service.employees.url}")
-    private String urlEmployees = System.getenv().getOrDefault("EMPLOYEES_SERVICE_URL", "http://localhost:8081");
-
-    //@Value("${service.schedule.url}")
-    private String urlSchedule = System.getenv().getOrDefault("SCHEDULE_SERVICE_URL", "http://localhost:8083");
-
-    private final Map<String, WebClient>  webClients;
-
-    private static final Logger logger = LoggerFactory.getLogger(GatewayController.class);
-
-    public GatewayController(WebClient.Builder webClientBuilder) {
-        this.webClients = new HashMap<>();
-        
-        // Log de las URLs para depuración
-        logger.info("URL Users: {}", urlUsers);
-        logger.info("URL Employees: {}", urlEmployees);
-        logger.info("URL Schedule: {}", urlSchedule);
-        
-        webClients.put("/api/v1/users", WebClient.create(urlUsers));
-        webClients.put("/api/v1/employees", WebClient.create(urlEmployees));
-        webClients.put("/api/v1/schedule", WebClient.create(urlSchedule));
-        webClients.put("/api/v1/rols", webClients.get("/api/v1/employees"));
-     
-    }
-    private WebClient getWebClient(String path){
-        String[] segments = path.split("/");
-        String[] relevantSegments = Arrays.stream(segments)
-                                          .filter(s -> !s.isEmpty())
-                                          .toArray(String[]::new);
-
-        int limit = Math.min(relevantSegments.length, 3);
-        
-        String result = Arrays.stream(relevantSegments)
-                              .limit(limit)
-                              .collect(Collectors.joining("/", "/", ""));
-        
-        logger.info("Este es un mensaje de información: "+ result);
-        return webClients.get(result);
-    }
-
-    private String buildCompleteUri(String path, String queryString) {
-        if (queryString != null && !queryString.isEmpty()) {
-            return path + "?" + queryString;
-        }
-        return path;
+    public GatewayController(GatewayService gatewayService) {
+        this.gatewayService = gatewayService;
     }
 
     /**
-     * Forwards any POST request arriving at the root path "/" 
-     * to the target service at http://localhost:8081/
+     * Forwards any POST request to the backend service that owns the path.
+     * The body is streamed through without being buffered.
      */
     @PostMapping("/**") // Maps all POST paths dynamically
-    public Mono<ResponseEntity<String>> forwardPostRequests(ServerWebExchange exchange) {
-   
-        String path = exchange.getRequest().getPath().toString();
-        String completeUri = buildCompleteUri(path, exchange.getRequest().getURI().getQuery());
-        
-        WebClient webClient = this.getWebClient(path);
-        if(webClient == null){
-            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error+path));
-        }
-        logger.info("GateWay -> Forwarding POST request to: " + completeUri);
-
-        Mono<String> bodyMono = DataBufferUtils.join(exchange.getRequest().getBody())
-            .map(dataBuffer -> {
-                byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                dataBuffer.read(bytes);
-                DataBufferUtils.release(dataBuffer);
-                return new String(bytes, StandardCharsets.UTF_8);
-            });
-
-        return bodyMono.flatMap(body -> {
-            logger.info("GateWay -> Body content: " + body);
-            return webClient.post()
-                .uri(completeUri)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .exchangeToMono(clientResponse -> clientResponse.toEntity(String.class))
-                .onErrorResume(e -> {
-                    logger.error("Error forwarding POST request: ", e);
-                    return Mono.just(ResponseEntity.internalServerError().body("Gateway Error: Cannot reach backend service"));
-                })
-                .doOnSuccess(v -> logger.info("Gateway POST forwarded successfully"))
-                .doOnError(err ->  logger.error("Error forwarding POST request: ", err));
-        });
+    public Mono<Void> forwardPostRequests(ServerWebExchange exchange) {
+        return gatewayService.forward(exchange, HttpMethod.POST, true);
     }
 
     @GetMapping("/**")
-    public Mono<ResponseEntity<String>> forwardGetRequests(ServerWebExchange exchange) {
-        String path = exchange.getRequest().getPath().toString();
-        String completeUri = buildCompleteUri(path, exchange.getRequest().getURI().getQuery());
-        
-        WebClient webClient = this.getWebClient(path);
-        //logger.info("Este es un mensaje de información: "+ webClient);
-
-        webClient.mutate().filter((request, next) -> {
-            logger.info("La URL base configurada es: " + request.url());
-            return next.exchange(request);
-        }).build();
-        
-        if(webClient == null){
-            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error+path));
-        }
-        return webClient.get()
-            .uri(completeUri)
-            .headers(h -> h.addAll(exchange.getRequest().getHeaders())) // forward headers
-            .exchangeToMono(clientResponse -> clientResponse.toEntity(String.class))
-            .onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().body("Gateway Error: Cannot reach backend service")));
+    public Mono<Void> forwardGetRequests(ServerWebExchange exchange) {
+        return gatewayService.forward(exchange, HttpMethod.GET, false);
     }
 
     @PutMapping("/**")
-    public Mono<ResponseEntity<String>> forwardPutRequests(ServerWebExchange exchange) {
-        String path = exchange.getRequest().getPath().toString();
-        String completeUri = buildCompleteUri(path, exchange.getRequest().getURI().getQuery());
-        
-        WebClient webClient = this.getWebClient(path);
-        if(webClient == null){
-            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error+path));
-        }
-        Mono<String> bodyMono = DataBufferUtils.join(exchange.getRequest().getBody())
-            .map(dataBuffer -> {
-                byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                dataBuffer.read(bytes);
-                DataBufferUtils.release(dataBuffer);
-                return new String(bytes, StandardCharsets.UTF_8);
-            });
-
-        return bodyMono.flatMap(body -> {
-            logger.info("GateWay -> Body content (PUT): " + body);
-            return webClient.put()
-                .uri(completeUri)
-                .headers(h -> h.addAll(exchange.getRequest().getHeaders()))
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .exchangeToMono(clientResponse -> clientResponse.toEntity(String.class))
-                .onErrorResume(e -> {
-                    logger.error("Error forwarding PUT request: ", e);
-                    return Mono.just(ResponseEntity.internalServerError().body("Gateway Error: Cannot reach backend service"));
-                });
-        });
+    public Mono<Void> forwardPutRequests(ServerWebExchange exchange) {
+        return gatewayService.forward(exchange, HttpMethod.PUT, true);
     }
 
     @PatchMapping("/**")
-    public Mono<ResponseEntity<String>> forwardPatchRequests(ServerWebExchange exchange) {
-        String path = exchange.getRequest().getPath().toString();
-        String completeUri = buildCompleteUri(path, exchange.getRequest().getURI().getQuery());
-        
-        WebClient webClient = this.getWebClient(path);
-        if(webClient == null){
-            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error+path));
-        }
-        Mono<String> bodyMono = DataBufferUtils.join(exchange.getRequest().getBody())
-            .map(dataBuffer -> {
-                byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                dataBuffer.read(bytes);
-                DataBufferUtils.release(dataBuffer);
-                return new String(bytes, StandardCharsets.UTF_8);
-            });
-
-        return bodyMono.flatMap(body -> {
-            logger.info("GateWay -> Body content (PATCH): " + body);
-            return webClient.patch()
-                .uri(completeUri)
-                .headers(h -> h.addAll(exchange.getRequest().getHeaders()))
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .exchangeToMono(clientResponse -> clientResponse.toEntity(String.class))
-                .onErrorResume(e -> {
-                    logger.error("Error forwarding PATCH request: ", e);
-                    return Mono.just(ResponseEntity.internalServerError().body("Gateway Error: Cannot reach backend service"));
-                });
-        });
+    public Mono<Void> forwardPatchRequests(ServerWebExchange exchange) {
+        return gatewayService.forward(exchange, HttpMethod.PATCH, true);
     }
 
     @DeleteMapping("/**")
-    public Mono<ResponseEntity<String>> forwardDeleteRequests(ServerWebExchange exchange) {
-        String path = exchange.getRequest().getPath().toString();
-        String completeUri = buildCompleteUri(path, exchange.getRequest().getURI().getQuery());
-        
-        WebClient webClient = this.getWebClient(path);
-        if(webClient == null){
-            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error+path));
-        }
-        return webClient.delete()
-            .uri(completeUri)
-            .headers(h -> h.addAll(exchange.getRequest().getHeaders())) // forward headers
-            .exchangeToMono(clientResponse -> clientResponse.toEntity(String.class))
-            .onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().body("Gateway Error: Cannot reach backend service")));
+    public Mono<Void> forwardDeleteRequests(ServerWebExchange exchange) {
+        return gatewayService.forward(exchange, HttpMethod.DELETE, false);
     }
 
 }
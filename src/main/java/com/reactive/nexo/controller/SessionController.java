@@ -17,18 +17,17 @@ import reactor.core.publisher.Mono;
 import io.jsonwebtoken.Claims;
 import com.reactive.nexo.dto.ResetPasswordRequest;
 import com.reactive.nexo.dto.ResetPasswordResponse;
+import com.reactive.nexo.gateway.RateLimiter;
+import com.reactive.nexo.gateway.UpstreamClientRegistry;
+import com.reactive.nexo.security.TokenRevocationService;
+import org.springframework.http.HttpHeaders;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
 import com.reactive.nexo.util.TwoFactorUtil;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import java.io.ByteArrayOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +45,13 @@ public class SessionController {
     private JwtUtil jwtUtil;
     
     @Autowired
-    private WebClient.Builder webClientBuilder;
+    private UpstreamClientRegistry clientRegistry;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RateLimiter rateLimiter;
     
     private static final Logger logger = LoggerFactory.getLogger(SessionController.class);
 
@@ -59,6 +64,12 @@ public class SessionController {
     public Mono<ResponseEntity<LoginResponse>> login(@RequestBody LoginRequest request, ServerWebExchange exchange) {
         log.info("SessionController.login - Login request for user: {}/{}", 
                 request.getIdentification_type(), request.getIdentification_number());
+
+        // La identificación va en el body, así que su límite se aplica aquí y no en RateLimitFilter
+        if (!rateLimiter.acquire(exchange, RateLimiter.KeyType.IDENTIFICATION,
+                request.getIdentification_type() + "/" + request.getIdentification_number())) {
+            return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+        }
         
         return sessionService.login(request,exchange)
                 .map(response -> ResponseEntity.status(HttpStatus.OK).body(response))
@@ -69,12 +80,22 @@ public class SessionController {
     }
 
     /**
-     * POST /api/v1/auth/logout - Logout endpoint (stateless, no action needed on server)
+     * POST /api/v1/auth/logout - Logout endpoint
+     * Revokes the bearer token until its expiration; an invalid or missing token is ignored
      */
     @PostMapping("/logout")
-    public Mono<ResponseEntity<Void>> logout() {
+    public Mono<ResponseEntity<Void>> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
         log.info("SessionController.logout - Logout request");
-        return Mono.just(ResponseEntity.ok().<Void>build());
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return Mono.just(ResponseEntity.ok().<Void>build());
+        }
+        String token = authorization.substring(7);
+        Claims claims = jwtUtil.extractClaims(token);
+        if (claims == null) {
+            return Mono.just(ResponseEntity.ok().<Void>build());
+        }
+        return tokenRevocationService.revoke(token, claims)
+                .thenReturn(ResponseEntity.ok().<Void>build());
     }
 
    /**
@@ -82,10 +103,15 @@ public class SessionController {
     * Accepts identificationType and identificationNumber and echoes back the same.
     */
     @PostMapping("/reset-password")
-    public Mono<ResponseEntity<Boolean>> resetPassword(@RequestBody ResetPasswordRequest request) {
+    public Mono<ResponseEntity<Boolean>> resetPassword(@RequestBody ResetPasswordRequest request, ServerWebExchange exchange) {
         log.info("SessionController.resetPassword - Request for user: {}/{}",
                 request.getIdentificationType(), request.getIdentificationNumber());
 
+        if (!rateLimiter.acquire(exchange, RateLimiter.KeyType.IDENTIFICATION,
+                request.getIdentificationType() + "/" + request.getIdentificationNumber())) {
+            return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(false));
+        }
+
         return sessionService
                 .resetPassword(request.getIdentificationType(), request.getIdentificationNumber())
                 .map(success -> ResponseEntity.ok(success))
@@ -102,8 +128,7 @@ public class SessionController {
             @PathVariable String token,
             @RequestBody ChangePasswordRequest request) {
         
-        log.info("SessionController.changePassword - Change password request for token: {}", 
-                token.substring(0, Math.min(token.length(), 20)) + "...");
+        log.info("SessionController.changePassword - Change password request");
         
         try {
             // Extract claims from token
@@ -135,10 +160,8 @@ public class SessionController {
             UpdatePasswordRequest updateRequest = new UpdatePasswordRequest();
             updateRequest.setPassword(request.getNew_password());
             
-            // Make PATCH request to employees module
-            //@Value("${service.employees.url}")
-            String employeesUrl = "http://localhost:8081"; // URL del módulo employees
-            WebClient webClient = webClientBuilder.baseUrl(employeesUrl).build();
+            // Make PATCH request to employees module (cliente compartido del gateway)
+            WebClient webClient = clientRegistry.client("employees");
             
             return webClient.patch()
                     .uri("/api/v1/employees/{id}", employeeId)
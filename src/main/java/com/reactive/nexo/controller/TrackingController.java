@@ -1,46 +1,87 @@
 package com.reactive.nexo.controller;
 
+import com.reactive.nexo.dto.TrackingCursor;
 import com.reactive.nexo.model.Tracking;
-import com.reactive.nexo.repository.TrackingRepository;
+import com.reactive.nexo.repository.TrackingQueries;
+import com.reactive.nexo.repository.TrackingSearch;
+import com.reactive.nexo.repository.TrackingTextQuery;
+import com.reactive.nexo.repository.TrackingTextSearch;
+import com.reactive.nexo.service.TrackingRollups;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Consultas de tracking, de la más reciente a la más antigua, paginadas por keyset
+ * sobre (created_at, id). En JSON cada respuesta es una página de como mucho
+ * {@code max-page-size} filas y, si hay más, el header {@value #NEXT_CURSOR_HEADER}
+ * trae el cursor para pedir la siguiente con {@code ?cursor=}. Con
+ * {@code Accept: application/x-ndjson} las filas se envían según salen de la base
+ * de datos, sin límite salvo que se indique, con memoria constante.
+ */
 @RestController
 @RequestMapping("/tracking")
-@RequiredArgsConstructor
 @Slf4j
 @Tag(name = "Tracking", description = "API para consultar registros de tracking de acciones ejecutadas")
 public class TrackingController {
 
-    private final TrackingRepository trackingRepository;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final TrackingQueries trackingQueries;
+    private final TrackingTextSearch trackingTextSearch;
+    private final TrackingRollups trackingRollups;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int maxStatsPoints;
+
+    public TrackingController(TrackingQueries trackingQueries, TrackingTextSearch trackingTextSearch,
+                              TrackingRollups trackingRollups,
+                              @Value("${tracking.query.default-page-size:50}") int defaultPageSize,
+                              @Value("${tracking.query.max-page-size:500}") int maxPageSize,
+                              @Value("${tracking.rollups.max-points:5000}") int maxStatsPoints) {
+        this.trackingQueries = trackingQueries;
+        this.trackingTextSearch = trackingTextSearch;
+        this.trackingRollups = trackingRollups;
+        this.maxStatsPoints = Math.max(1, maxStatsPoints);
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.defaultPageSize = Math.min(Math.max(1, defaultPageSize), this.maxPageSize);
+    }
 
     @Operation(
         summary = "Consultar tracking por atributo y valor",
         description = "Permite consultar registros de tracking filtrando por cualquier atributo de la tabla " +
                      "con diferentes tipos de relación (eq=igual, lt=menor que, gt=mayor que). " +
-                     "Atributos soportados: id, created_at, employee_id, action, data, result"
+                     "Atributos soportados: id, created_at, employee_id, action, data, result. " +
+                     "Paginado por cursor (header X-Next-Cursor)"
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Consulta exitosa"),
-        @ApiResponse(responseCode = "400", description = "Atributo no válido o formato de fecha incorrecto"),
+        @ApiResponse(responseCode = "400", description = "Atributo no válido, formato de fecha o cursor incorrecto"),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor")
     })
-    @GetMapping("/by/{attribute}/{value}")
+    @GetMapping(value = "/by/{attribute}/{value}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<Flux<Tracking>>> getTrackingBy(
             @Parameter(description = "Atributo de la tabla (id, created_at, employee_id, action, data, result)", required = true)
             @PathVariable String attribute,
@@ -49,13 +90,18 @@ public class TrackingController {
             @PathVariable String value,
             
             @Parameter(description = "Tipo de relación (eq, lt, gt)", example = "eq")
-            @RequestParam(defaultValue = "eq") String relation) {
+            @RequestParam(defaultValue = "eq") String relation,
+
+            @Parameter(description = "Filas por página (como mucho tracking.query.max-page-size)", example = "50")
+            @RequestParam(required = false) Integer limit,
+
+            @Parameter(description = "Cursor devuelto en X-Next-Cursor por la página anterior")
+            @RequestParam(required = false) String cursor) {
 
         log.info("Consultando tracking por atributo: {}, valor: {}, relación: {}", attribute, value, relation);
 
         try {
-            Flux<Tracking> result = getTrackingFlux(attribute, value, relation);
-            return Mono.just(ResponseEntity.ok(result));
+            return page(getTrackingCriteria(attribute, value, relation), cursor, limit);
         } catch (IllegalArgumentException e) {
             log.error("Error en parámetros: {}", e.getMessage());
             return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
@@ -65,35 +111,291 @@ public class TrackingController {
         }
     }
 
+    @Operation(
+        summary = "Consultar tracking por atributo y valor en streaming",
+        description = "Como /by/{attribute}/{value}, pero envía las filas en NDJSON a medida que se leen"
+    )
+    @GetMapping(value = "/by/{attribute}/{value}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Tracking> streamTrackingBy(
+            @PathVariable String attribute,
+            @PathVariable String value,
+            @RequestParam(defaultValue = "eq") String relation,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return stream(() -> getTrackingCriteria(attribute, value, relation), cursor, limit);
+    }
+
+    @Operation(
+        summary = "Consultar tracking con varias condiciones",
+        description = "Combina con AND una condición por parámetro de columna (id, created_at, employee_id, " +
+                     "action, data, result) con la forma operador:valor: eq (por defecto), lt, lte, gt, gte, " +
+                     "between:desde,hasta, in:v1,v2,... y prefix (solo action). since=24h limita a la ventana " +
+                     "indicada y fields=action,result devuelve solo esas columnas (más id y created_at). " +
+                     "Ejemplo: ?employee_id=in:7,9&action=prefix:endpoint called: /api/v1/users&since=24h. " +
+                     "Paginado por cursor (header X-Next-Cursor)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Consulta exitosa"),
+        @ApiResponse(responseCode = "400", description = "Atributo, operador, valor o cursor no válido"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @GetMapping(value = "/query", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<Map<String, Object>>>> searchTracking(
+            @Parameter(description = "Condiciones columna=operador:valor, since y fields")
+            @RequestParam MultiValueMap<String, String> params,
+
+            @Parameter(description = "Filas por página (como mucho tracking.query.max-page-size)", example = "50")
+            @RequestParam(required = false) Integer limit,
+
+            @Parameter(description = "Cursor devuelto en X-Next-Cursor por la página anterior")
+            @RequestParam(required = false) String cursor) {
+
+        TrackingSearch search;
+        try {
+            search = TrackingSearch.parse(params, LocalDateTime.now());
+        } catch (IllegalArgumentException e) {
+            log.error("Error en parámetros: {}", e.getMessage());
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+        log.info("Consultando tracking: {}", search.getConditions());
+        return page(cursor, limit, (after, rows) -> trackingQueries.search(search, after, rows),
+                TrackingController::cursorOf);
+    }
+
+    @Operation(
+        summary = "Consultar tracking con varias condiciones en streaming",
+        description = "Como /query, pero envía las filas en NDJSON a medida que se leen"
+    )
+    @GetMapping(value = "/query", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> streamSearchTracking(
+            @RequestParam MultiValueMap<String, String> params,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        try {
+            TrackingSearch search = TrackingSearch.parse(params, LocalDateTime.now());
+            TrackingCursor after = cursor != null && !cursor.isEmpty() ? TrackingCursor.decode(cursor) : null;
+            return trackingQueries.search(search, after, limit != null ? Math.max(1, limit) : 0);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+    }
+
+    @Operation(
+        summary = "Buscar texto en los payloads de tracking",
+        description = "Busca palabras clave y condiciones campo:valor sobre los JSON de data y result, por ejemplo " +
+                     "q=employeeId:1 o q=status:\"not found\" error. En PostgreSQL usa el índice GIN del tsvector y " +
+                     "las palabras admiten comillas, or y -palabra; sort=rank ordena por relevancia y sort=recent por " +
+                     "fecha. Paginado por cursor (header X-Next-Cursor)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Búsqueda exitosa"),
+        @ApiResponse(responseCode = "400", description = "Búsqueda vacía, orden o cursor no válido"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<Map<String, Object>>>> searchTrackingText(
+            @Parameter(description = "Palabras clave y condiciones campo:valor", required = true, example = "employeeId:1")
+            @RequestParam String q,
+
+            @Parameter(description = "Orden (rank, recent)", example = "rank")
+            @RequestParam(defaultValue = "rank") String sort,
+
+            @Parameter(description = "Filas por página (como mucho tracking.query.max-page-size)", example = "50")
+            @RequestParam(required = false) Integer limit,
+
+            @Parameter(description = "Cursor devuelto en X-Next-Cursor por la página anterior")
+            @RequestParam(required = false) String cursor) {
+
+        TrackingTextQuery query;
+        TrackingTextSearch.Order order;
+        try {
+            query = TrackingTextQuery.parse(q);
+            order = TrackingTextSearch.Order.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.error("Error en parámetros: {}", e.getMessage());
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Búsqueda no válida: " + e.getMessage()));
+        }
+        log.info("Buscando en tracking: {} ({})", q, order);
+        return page(cursor, limit, (after, rows) -> searchText(query, order, after, rows),
+                row -> cursorOf(row, order == TrackingTextSearch.Order.RANK ? (Float) row.get("rank") : null));
+    }
+
+    @Operation(
+        summary = "Buscar texto en los payloads de tracking en streaming",
+        description = "Como /search, pero envía las filas en NDJSON a medida que se leen"
+    )
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> streamSearchTrackingText(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "rank") String sort,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        try {
+            TrackingTextQuery query = TrackingTextQuery.parse(q);
+            TrackingTextSearch.Order order = TrackingTextSearch.Order.valueOf(sort.toUpperCase());
+            TrackingCursor after = cursor != null && !cursor.isEmpty() ? TrackingCursor.decode(cursor) : null;
+            return trackingTextSearch.search(query, order, after, limit != null ? Math.max(1, limit) : 0);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+    }
+
+    @Operation(
+        summary = "Estadísticas agregadas de tracking",
+        description = "Serie temporal de peticiones, errores (5xx o acciones error:) y latencia media y máxima " +
+                     "por minuto, hora o día, agrupada por acción, empleado, endpoint o en total. Se responde " +
+                     "desde los agregados mantenidos al escribir el tracking, sin recorrer la tabla tracking. " +
+                     "Sin from/to: la última hora por minuto, el último día por hora o los últimos 30 días por día"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Consulta exitosa"),
+        @ApiResponse(responseCode = "400", description = "Dimensión, granularidad o fecha no válida")
+    })
+    @GetMapping("/stats")
+    public Flux<Map<String, Object>> getTrackingStats(
+            @Parameter(description = "Agrupación (action, employee, endpoint, total)", example = "action")
+            @RequestParam(defaultValue = "total") String dimension,
+
+            @Parameter(description = "Tamaño del bucket (minute, hour, day)", example = "hour")
+            @RequestParam(defaultValue = "hour") String granularity,
+
+            @Parameter(description = "Inicio, incluido (2023-12-01T10:30:00 o 2023-12-01)")
+            @RequestParam(required = false) String from,
+
+            @Parameter(description = "Fin, excluido (2023-12-01T10:30:00 o 2023-12-01)")
+            @RequestParam(required = false) String to,
+
+            @Parameter(description = "Valores de la dimensión a incluir; todos si no se indica")
+            @RequestParam(required = false) List<String> value,
+
+            @Parameter(description = "Puntos como mucho (tracking.rollups.max-points)", example = "1000")
+            @RequestParam(required = false) Integer limit) {
+        try {
+            TrackingRollups.Dimension groupBy = TrackingRollups.Dimension.valueOf(dimension.toUpperCase());
+            TrackingRollups.Granularity bucket = TrackingRollups.Granularity.valueOf(granularity.toUpperCase());
+            LocalDateTime end = to != null ? parseDate(to) : LocalDateTime.now();
+            LocalDateTime start = from != null ? parseDate(from) : end.minus(defaultWindow(bucket));
+            int points = limit != null ? Math.min(Math.max(1, limit), maxStatsPoints) : maxStatsPoints;
+            return trackingRollups.query(groupBy, bucket, start, end, value != null ? value : List.of(), points);
+        } catch (IllegalArgumentException e) {
+            log.error("Error en parámetros: {}", e.getMessage());
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                e.getMessage() != null && e.getMessage().startsWith("No enum constant")
+                    ? "Use dimension=action|employee|endpoint|total y granularity=minute|hour|day" : e.getMessage()));
+        }
+    }
+
     @Operation(
         summary = "Obtener últimos registros de tracking",
         description = "Devuelve los últimos registros de tracking ordenados por fecha de creación"
     )
-    @GetMapping("/latest")
+    @GetMapping(value = "/latest", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<Flux<Tracking>>> getLatestTracking(
             @Parameter(description = "Número de registros a obtener", example = "50")
-            @RequestParam(defaultValue = "50") int limit) {
+            @RequestParam(required = false) Integer limit,
+
+            @Parameter(description = "Cursor devuelto en X-Next-Cursor por la página anterior")
+            @RequestParam(required = false) String cursor) {
 
         log.info("Obteniendo los últimos {} registros de tracking", limit);
         
-        Flux<Tracking> result = trackingRepository.findLatestTracking(limit);
-        return Mono.just(ResponseEntity.ok(result));
+        return page(Criteria.empty(), cursor, limit);
     }
 
     @Operation(
         summary = "Obtener todos los registros de tracking",
-        description = "Devuelve todos los registros de tracking ordenados por fecha de creación descendente"
+        description = "Devuelve los registros de tracking ordenados por fecha de creación descendente, " +
+                     "una página por petición (header X-Next-Cursor)"
     )
-    @GetMapping
-    public Mono<ResponseEntity<Flux<Tracking>>> getAllTracking() {
-        log.info("Obteniendo todos los registros de tracking");
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<Tracking>>> getAllTracking(
+            @Parameter(description = "Filas por página (como mucho tracking.query.max-page-size)", example = "50")
+            @RequestParam(required = false) Integer limit,
+
+            @Parameter(description = "Cursor devuelto en X-Next-Cursor por la página anterior")
+            @RequestParam(required = false) String cursor) {
+        log.info("Obteniendo registros de tracking");
         
-        Flux<Tracking> result = trackingRepository.findAll()
-                .sort((t1, t2) -> t2.getCreatedAt().compareTo(t1.getCreatedAt()));
-        return Mono.just(ResponseEntity.ok(result));
+        return page(Criteria.empty(), cursor, limit);
+    }
+
+    @Operation(
+        summary = "Obtener todos los registros de tracking en streaming",
+        description = "Envía en NDJSON todos los registros (o limit) desde el cursor, a medida que se leen"
+    )
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Tracking> streamAllTracking(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return stream(Criteria::empty, cursor, limit);
+    }
+
+    /**
+     * Una página: se pide una fila más de las solicitadas para saber si hay otra.
+     */
+    private Mono<ResponseEntity<Flux<Tracking>>> page(Criteria criteria, String cursor, Integer limit) {
+        return page(cursor, limit, (after, rows) -> trackingQueries.find(criteria, after, rows),
+                last -> new TrackingCursor(last.getCreatedAt(), last.getId()));
+    }
+
+    private <T> Mono<ResponseEntity<Flux<T>>> page(String cursor, Integer limit,
+                                                   BiFunction<TrackingCursor, Integer, Flux<T>> query,
+                                                   Function<T, TrackingCursor> cursorOf) {
+        TrackingCursor after;
+        try {
+            after = cursor != null && !cursor.isEmpty() ? TrackingCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+        int pageSize = limit != null ? Math.min(Math.max(1, limit), maxPageSize) : defaultPageSize;
+        return query.apply(after, pageSize + 1)
+                .collectList()
+                .map(rows -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    List<T> items = rows;
+                    if (rows.size() > pageSize) {
+                        items = rows.subList(0, pageSize);
+                        response.header(NEXT_CURSOR_HEADER, cursorOf.apply(items.get(pageSize - 1)).encode());
+                    }
+                    return response.body(Flux.fromIterable(items));
+                });
+    }
+
+    private Flux<Tracking> stream(Supplier<Criteria> criteria, String cursor, Integer limit) {
+        try {
+            TrackingCursor after = cursor != null && !cursor.isEmpty() ? TrackingCursor.decode(cursor) : null;
+            return trackingQueries.find(criteria.get(), after, limit != null ? Math.max(1, limit) : 0);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
     }
 
-    private Flux<Tracking> getTrackingFlux(String attribute, String value, String relation) {
+    private static Duration defaultWindow(TrackingRollups.Granularity granularity) {
+        switch (granularity) {
+            case MINUTE: return Duration.ofHours(1);
+            case DAY: return Duration.ofDays(30);
+            default: return Duration.ofDays(1);
+        }
+    }
+
+    private Flux<Map<String, Object>> searchText(TrackingTextQuery query, TrackingTextSearch.Order order,
+                                                 TrackingCursor after, int rows) {
+        try {
+            return trackingTextSearch.search(query, order, after, rows);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+    }
+
+    private static TrackingCursor cursorOf(Map<String, Object> row) {
+        return cursorOf(row, null);
+    }
+
+    private static TrackingCursor cursorOf(Map<String, Object> row, Float rank) {
+        return new TrackingCursor((LocalDateTime) row.get("created_at"), (Long) row.get("id"), rank);
+    }
+
+    private Criteria getTrackingCriteria(String attribute, String value, String relation) {
         // Normalizar la relación
         relation = relation.toLowerCase();
 
@@ -105,102 +407,51 @@ public class TrackingController {
         // Procesar según el atributo
         switch (attribute.toLowerCase()) {
             case "id":
-                return getByIdAttribute(value, relation);
+                return compare("id", parseLong(value, "id"), relation);
             case "created_at":
-                return getByCreatedAtAttribute(value, relation);
+                return compare("createdAt", parseDate(value), relation);
             case "employee_id":
-                return getByEmployeeIdAttribute(value, relation);
+                return compare("employeeId", parseLong(value, "employee_id"), relation);
             case "action":
-                return getByActionAttribute(value, relation);
+                return compare("action", value, relation);
             case "data":
-                return getByDataAttribute(value, relation);
+                return compare("data", value, relation);
             case "result":
-                return getByResultAttribute(value, relation);
+                return compare("result", value, relation);
             default:
                 throw new IllegalArgumentException("Atributo no válido: " + attribute + 
                     ". Atributos soportados: id, created_at, employee_id, action, data, result");
         }
     }
 
-    private Flux<Tracking> getByIdAttribute(String value, String relation) {
-        try {
-            Long longValue = Long.parseLong(value);
-            switch (relation) {
-                case "eq": return trackingRepository.findByIdEquals(longValue);
-                case "lt": return trackingRepository.findByIdLessThan(longValue);
-                case "gt": return trackingRepository.findByIdGreaterThan(longValue);
-                default: throw new IllegalArgumentException("Relación no válida");
-            }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("El valor para 'id' debe ser un número válido");
+    private static Criteria compare(String property, Object value, String relation) {
+        switch (relation) {
+            case "eq": return Criteria.where(property).is(value);
+            case "lt": return Criteria.where(property).lessThan(value);
+            case "gt": return Criteria.where(property).greaterThan(value);
+            default: throw new IllegalArgumentException("Relación no válida");
         }
     }
 
-    private Flux<Tracking> getByEmployeeIdAttribute(String value, String relation) {
+    private static Long parseLong(String value, String attribute) {
         try {
-            Long longValue = Long.parseLong(value);
-            switch (relation) {
-                case "eq": return trackingRepository.findByEmployeeIdEquals(longValue);
-                case "lt": return trackingRepository.findByEmployeeIdLessThan(longValue);
-                case "gt": return trackingRepository.findByEmployeeIdGreaterThan(longValue);
-                default: throw new IllegalArgumentException("Relación no válida");
-            }
+            return Long.parseLong(value);
         } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("El valor para 'employee_id' debe ser un número válido");
+            throw new IllegalArgumentException("El valor para '" + attribute + "' debe ser un número válido");
         }
     }
 
-    private Flux<Tracking> getByCreatedAtAttribute(String value, String relation) {
+    private static LocalDateTime parseDate(String value) {
         try {
-            // Intentar parsear diferentes formatos de fecha
-            LocalDateTime dateValue;
+            // Formato ISO estándar: 2023-12-01T10:30:00
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e1) {
             try {
-                // Formato ISO estándar: 2023-12-01T10:30:00
-                dateValue = LocalDateTime.parse(value);
-            } catch (DateTimeParseException e1) {
-                try {
-                    // Formato fecha sin tiempo: 2023-12-01
-                    dateValue = LocalDateTime.parse(value + "T00:00:00");
-                } catch (DateTimeParseException e2) {
-                    throw new IllegalArgumentException("Formato de fecha no válido. Use: 2023-12-01T10:30:00 o 2023-12-01");
-                }
-            }
-            
-            switch (relation) {
-                case "eq": return trackingRepository.findByCreatedAtEquals(dateValue);
-                case "lt": return trackingRepository.findByCreatedAtLessThan(dateValue);
-                case "gt": return trackingRepository.findByCreatedAtGreaterThan(dateValue);
-                default: throw new IllegalArgumentException("Relación no válida");
+                // Formato fecha sin tiempo: 2023-12-01
+                return LocalDateTime.parse(value + "T00:00:00");
+            } catch (DateTimeParseException e2) {
+                throw new IllegalArgumentException("Formato de fecha no válido para 'created_at'. Use: 2023-12-01T10:30:00 o 2023-12-01");
             }
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Formato de fecha no válido para 'created_at'. Use: 2023-12-01T10:30:00 o 2023-12-01");
-        }
-    }
-
-    private Flux<Tracking> getByActionAttribute(String value, String relation) {
-        switch (relation) {
-            case "eq": return trackingRepository.findByActionEquals(value);
-            case "lt": return trackingRepository.findByActionLessThan(value);
-            case "gt": return trackingRepository.findByActionGreaterThan(value);
-            default: throw new IllegalArgumentException("Relación no válida");
-        }
-    }
-
-    private Flux<Tracking> getByDataAttribute(String value, String relation) {
-        switch (relation) {
-            case "eq": return trackingRepository.findByDataEquals(value);
-            case "lt": return trackingRepository.findByDataLessThan(value);
-            case "gt": return trackingRepository.findByDataGreaterThan(value);
-            default: throw new IllegalArgumentException("Relación no válida");
-        }
-    }
-
-    private Flux<Tracking> getByResultAttribute(String value, String relation) {
-        switch (relation) {
-            case "eq": return trackingRepository.findByResultEquals(value);
-            case "lt": return trackingRepository.findByResultLessThan(value);
-            case "gt": return trackingRepository.findByResultGreaterThan(value);
-            default: throw new IllegalArgumentException("Relación no válida");
         }
     }
-}
\ No newline at end of file
+}
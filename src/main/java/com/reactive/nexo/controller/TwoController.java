@@ -11,17 +11,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.reactive.nexo.util.QrCodeRenderer;
 import com.reactive.nexo.util.TwoFactorUtil;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import java.io.ByteArrayOutputStream;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +31,8 @@ public class TwoController {
 
     @Autowired
     private SessionService sessionService;
+    @Autowired
+    private QrCodeRenderer qrCodeRenderer;
     private static final Logger logger = LoggerFactory.getLogger(TwoController.class);
    
     private final String APP_ISSUER = "Nexo Salud";
@@ -47,32 +46,40 @@ public class TwoController {
         
         // 1. Generar un nuevo secreto para el usuario
         String newSecret = TwoFactorUtil.generateNewSecret();
-        logger.info("TwoController.generateQrCode - Generated new 2FA secret for user: {}/{} {}", identificationType, identificationNumber,newSecret);
+        logger.info("TwoController.generateQrCode - Generated new 2FA secret for user: {}/{}", identificationType, identificationNumber);
         
-        // 2. Guardar este secreto en la base de datos para el usuario actual (MUY IMPORTANTE)
-        return sessionService.saveTwoFactorSecret(exchange,identificationType, identificationNumber, newSecret).flatMap(success -> {
-                if (success) {
-                     // 3. Generar la URL del QR
-                     String qrUrl = TwoFactorUtil.getQRUrl(identificationType+"@"+identificationNumber, newSecret, APP_ISSUER);
-                     return Mono.fromCallable(() -> {
-                        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-                        BitMatrix bitMatrix = qrCodeWriter.encode(qrUrl, BarcodeFormat.QR_CODE, 200, 200);
-                        
-                        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-                        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
-                        byte[] pngData = pngOutputStream.toByteArray();
-                        
-                        return ResponseEntity.ok()
-                                .contentType(MediaType.IMAGE_PNG)
-                                .body(pngData);
-                    }).onErrorResume(e -> {
-                        // Manejar errores de generación de QR
-                        return Mono.just(ResponseEntity.internalServerError().body(null));
-                    });
-                } else {
-                    logger.error("TwoController.generateQrCode - Failed to save 2FA secret for user: {}/{}", identificationType, identificationNumber);
-                    return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
+        // 2. Generar la URL del QR
+        String qrUrl = TwoFactorUtil.getQRUrl(identificationType+"@"+identificationNumber, newSecret, APP_ISSUER);
+        // 3. Renderizar el PNG en el pool acotado, fuera del event loop. El secreto no se
+        // guarda hasta tener la imagen: si el render se rechaza, el usuario conserva el suyo
+        Mono<ResponseEntity<byte[]>> rendered = qrCodeRenderer.render(qrUrl)
+                .map(pngData -> ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_PNG)
+                        .body(pngData))
+                .onErrorResume(RejectedExecutionException.class, e -> {
+                    logger.warn("TwoController.generateQrCode - QR renderer saturated for user: {}/{}", identificationType, identificationNumber);
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header("Retry-After", "1")
+                        .body(null));
+                })
+                .onErrorResume(e -> {
+                    // Manejar errores de generación de QR
+                    logger.error("TwoController.generateQrCode - QR generation failed: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.internalServerError().body(null));
+                });
+
+        // 4. Guardar este secreto en la base de datos para el usuario actual (MUY IMPORTANTE)
+        return rendered.flatMap(response -> {
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    return Mono.just(response);
                 }
+                return sessionService.saveTwoFactorSecret(exchange,identificationType, identificationNumber, newSecret).map(success -> {
+                    if (success) {
+                        return response;
+                    }
+                    logger.error("TwoController.generateQrCode - Failed to save 2FA secret for user: {}/{}", identificationType, identificationNumber);
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).<byte[]>body(null);
+                });
             });
 
 
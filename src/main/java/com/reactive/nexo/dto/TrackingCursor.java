@@ -0,0 +1,51 @@
+package com.reactive.nexo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de continuación de las consultas de tracking: la última fila devuelta,
+ * por (created_at, id), y su relevancia en las búsquedas ordenadas por ranking.
+ * Viaja al cliente como token opaco en Base64 URL.
+ */
+@Getter
+@AllArgsConstructor
+public class TrackingCursor {
+
+    private final LocalDateTime createdAt;
+    private final long id;
+    /** Relevancia de la fila, solo en búsquedas por ranking; null en el resto. */
+    private final Float rank;
+
+    public TrackingCursor(LocalDateTime createdAt, long id) {
+        this(createdAt, id, null);
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id + (rank != null ? "|" + rank : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el token no es un cursor válido
+     */
+    public static TrackingCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2 && parts.length != 3) {
+                throw new IllegalArgumentException("Cursor no válido");
+            }
+            return new TrackingCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]),
+                    parts.length == 3 ? Float.valueOf(parts[2]) : null);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException es una IllegalArgumentException
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log de acceso asíncrono: los hilos de petición solo dejan el evento en un
+ * {@link RingBuffer} y un hilo propio lo escribe en el logger {@code ACCESS}, así
+ * que la E/S del appender nunca ocurre en el event loop. Si el buffer está lleno
+ * el evento se descarta y se cuenta.
+ */
+@Component
+@Slf4j
+public class AccessLog {
+
+    private static final Logger ACCESS = LoggerFactory.getLogger("ACCESS");
+    private static final String REDACTED = "[REDACTED]";
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final Map<String, Double> routeSampleRates;
+    private final List<String> redactedParams;
+    private final RingBuffer<AccessLogEvent> buffer;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+
+    public AccessLog(GatewayProperties properties) {
+        GatewayProperties.AccessLog config = properties.getAccessLog();
+        this.enabled = config.isEnabled();
+        this.sampleRate = config.getSampleRate();
+        this.routeSampleRates = Map.copyOf(config.getRoutes());
+        this.redactedParams = List.copyOf(config.getRedactedParams());
+        this.buffer = new RingBuffer<>(config.getCapacity());
+        this.writer = new Thread(this::drain, "access-log-writer");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            this.writer.start();
+        }
+    }
+
+    /**
+     * Indica si se debe registrar una petición de la ruta con ese status; los 5xx
+     * siempre se registran.
+     */
+    public boolean shouldLog(String routeId, int status) {
+        if (!enabled) {
+            return false;
+        }
+        if (status >= 500) {
+            return true;
+        }
+        double rate = routeId != null ? routeSampleRates.getOrDefault(routeId, sampleRate) : sampleRate;
+        if (rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate) {
+            return true;
+        }
+        sampledOut.increment();
+        return false;
+    }
+
+    public void log(AccessLogEvent event) {
+        if (buffer.offer(event)) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Path y query con los tokens ocultos: segmentos con forma de JWT y valores de
+     * los parámetros configurados.
+     */
+    public String redact(String path, String query) {
+        String redactedPath = path;
+        if (path.indexOf('.') >= 0) {
+            String[] segments = path.split("/", -1);
+            boolean changed = false;
+            for (int i = 0; i < segments.length; i++) {
+                if (looksLikeJwt(segments[i])) {
+                    segments[i] = REDACTED;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                redactedPath = String.join("/", segments);
+            }
+        }
+        if (query == null || query.isEmpty()) {
+            return redactedPath;
+        }
+        StringBuilder builder = new StringBuilder(redactedPath).append('?');
+        String[] params = query.split("&");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                builder.append('&');
+            }
+            int equals = params[i].indexOf('=');
+            String name = equals >= 0 ? params[i].substring(0, equals) : params[i];
+            boolean sensitive = redactedParams.stream().anyMatch(name::equalsIgnoreCase);
+            builder.append(sensitive && equals >= 0 ? name + "=" + REDACTED : params[i]);
+        }
+        return builder.toString();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("capacity", buffer.capacity());
+        snapshot.put("pending", buffer.size());
+        snapshot.put("enqueued", enqueued.sum());
+        snapshot.put("written", written.sum());
+        snapshot.put("dropped", dropped.sum());
+        snapshot.put("sampledOut", sampledOut.sum());
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drain() {
+        while (running || buffer.size() > 0) {
+            AccessLogEvent event = buffer.poll();
+            if (event == null) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+            try {
+                ACCESS.info(event.toJson());
+                written.increment();
+            } catch (RuntimeException e) {
+                log.warn("Cannot write access log event: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static boolean looksLikeJwt(String segment) {
+        int first = segment.indexOf('.');
+        return segment.length() > 30 && first > 0 && segment.indexOf('.', first + 1) > first;
+    }
+}
@@ -0,0 +1,73 @@
+package com.reactive.nexo.gateway;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Un evento del log de acceso. No contiene tokens ni bodies, solo su tamaño.
+ */
+@Getter
+@Builder
+public class AccessLogEvent {
+
+    private final long timestampMillis;
+    private final String method;
+    /** Path con los valores sensibles ya ocultos. */
+    private final String path;
+    /** Id de la ruta del gateway, null si la petición no es del proxy. */
+    private final String route;
+    private final String upstream;
+    private final int status;
+    private final long latencyMicros;
+    private final String employeeId;
+    private final String remoteAddress;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final boolean cancelled;
+
+    /**
+     * Línea JSON del evento.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append('{');
+        field(json, "ts", timestampMillis).append(',');
+        field(json, "method", method).append(',');
+        field(json, "path", path).append(',');
+        field(json, "route", route).append(',');
+        field(json, "upstream", upstream).append(',');
+        field(json, "status", status).append(',');
+        field(json, "latency_us", latencyMicros).append(',');
+        field(json, "employee_id", employeeId).append(',');
+        field(json, "remote", remoteAddress).append(',');
+        field(json, "req_bytes", requestBytes).append(',');
+        field(json, "resp_bytes", responseBytes);
+        if (cancelled) {
+            json.append(",\"cancelled\":true");
+        }
+        return json.append('}').toString();
+    }
+
+    private static StringBuilder field(StringBuilder json, String name, long value) {
+        return json.append('"').append(name).append("\":").append(value);
+    }
+
+    private static StringBuilder field(StringBuilder json, String name, String value) {
+        json.append('"').append(name).append("\":");
+        if (value == null) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+}
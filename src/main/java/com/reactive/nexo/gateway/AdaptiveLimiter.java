@@ -0,0 +1,259 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite adaptativo de peticiones en curso de una ruta (algoritmo de gradiente).
+ * <p>
+ * Compara en cada ventana el RTT medio reciente con una media larga: mientras el
+ * upstream no se ralentiza el límite crece en unas √límite peticiones, y cuando el
+ * RTT sube el límite baja en proporción (como mucho a la mitad). Los timeouts y
+ * errores de conexión lo reducen un 10%. Una petición que no cabe espera en una
+ * cola acotada durante {@code max-wait}; si no hay hueco se rechaza.
+ * <p>
+ * Sin bloqueos: el hilo que cierra la ventana es el único que recalcula el límite.
+ */
+@Slf4j
+public class AdaptiveLimiter {
+
+    private static final Mono<Boolean> ADMITTED = Mono.just(Boolean.TRUE);
+    private static final Mono<Boolean> REJECTED = Mono.just(Boolean.FALSE);
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final String name;
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double longRttFactor;
+    private final int minWindowSamples;
+    private final long windowNanos;
+    private final int maxQueue;
+    private final Duration maxWait;
+
+    private volatile double limit;
+    private volatile double longRttNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong windowEnd = new AtomicLong(System.nanoTime());
+    private final LongAdder windowRttNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAdder windowDrops = new LongAdder();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+
+    public AdaptiveLimiter(String name, GatewayProperties.Limiter config) {
+        this.name = name;
+        this.enabled = config.isEnabled();
+        this.minLimit = Math.max(1, config.getMinLimit());
+        this.maxLimit = Math.max(minLimit, config.getMaxLimit());
+        this.limit = Math.max(minLimit, Math.min(maxLimit, config.getInitialLimit()));
+        this.smoothing = config.getSmoothing();
+        this.rttTolerance = config.getRttTolerance();
+        this.longRttFactor = 2.0 / (config.getLongWindowSamples() + 1);
+        this.minWindowSamples = config.getMinWindowSamples();
+        this.windowNanos = config.getWindow().toNanos();
+        this.maxQueue = config.getMaxQueue();
+        this.maxWait = config.getMaxWait();
+    }
+
+    /**
+     * Emite true cuando hay hueco (inmediatamente o tras esperar en la cola) y false
+     * si la petición se rechaza. Con true hay que llamar después a {@link #release()}.
+     */
+    public Mono<Boolean> acquire() {
+        if (tryIncrement()) {
+            return ADMITTED;
+        }
+        if (maxQueue <= 0 || waiting.incrementAndGet() > maxQueue) {
+            if (maxQueue > 0) {
+                waiting.decrementAndGet();
+            }
+            rejected.increment();
+            return REJECTED;
+        }
+        queued.increment();
+        return Mono.<Boolean>create(sink -> {
+                Waiter waiter = new Waiter(sink);
+                sink.onCancel(waiter::cancel);
+                waiters.add(waiter);
+                drain();
+            })
+            .timeout(maxWait, Mono.fromSupplier(() -> {
+                timedOut.increment();
+                rejected.increment();
+                return Boolean.FALSE;
+            }));
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * Registra el RTT de una llamada (hasta los headers) o, con {@code dropped}, un
+     * timeout o error de conexión.
+     */
+    public void onSample(long rttNanos, boolean dropped) {
+        if (dropped) {
+            windowDrops.increment();
+        } else {
+            windowRttNanos.add(rttNanos);
+            windowSamples.increment();
+        }
+        long now = System.nanoTime();
+        long end = windowEnd.get();
+        if (now - end < 0) {
+            return;
+        }
+        if (windowSamples.sum() < minWindowSamples && windowDrops.sum() == 0) {
+            return;
+        }
+        if (windowEnd.compareAndSet(end, now + windowNanos)) {
+            updateLimit();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("limit", getLimit());
+        snapshot.put("inFlight", inFlight.get());
+        snapshot.put("waiting", waiting.get());
+        snapshot.put("longRttMs", TimeUnit.NANOSECONDS.toMillis((long) longRttNanos));
+        snapshot.put("queued", queued.sum());
+        snapshot.put("timedOut", timedOut.sum());
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+
+    private void updateLimit() {
+        long samples = windowSamples.sumThenReset();
+        long rttSum = windowRttNanos.sumThenReset();
+        long drops = windowDrops.sumThenReset();
+        int maxInFlight = windowMaxInFlight.getAndSet(inFlight.get());
+        double current = limit;
+        double next;
+        if (drops > 0) {
+            next = current * DROP_BACKOFF;
+        } else {
+            double shortRtt = (double) rttSum / samples;
+            double longRtt = longRttNanos == 0 ? shortRtt : longRttNanos * (1 - longRttFactor) + shortRtt * longRttFactor;
+            // Si el RTT ha mejorado mucho, la media larga se acerca antes al nuevo valor
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+            longRttNanos = longRtt;
+            if (maxInFlight < current / 2) {
+                // La ruta no está usando el límite: el RTT no dice nada sobre él
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+            double target = current * gradient + Math.sqrt(current);
+            next = current * (1 - smoothing) + target * smoothing;
+        }
+        next = Math.max(minLimit, Math.min(maxLimit, next));
+        if ((int) next != (int) current) {
+            log.debug("Adaptive limit {} {} -> {}", name, (int) current, (int) next);
+        }
+        limit = next;
+        drain();
+    }
+
+    private boolean tryIncrement() {
+        if (!enabled) {
+            trackMax(inFlight.incrementAndGet());
+            return true;
+        }
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                trackMax(current + 1);
+                return true;
+            }
+        }
+    }
+
+    private void trackMax(int value) {
+        int max = windowMaxInFlight.get();
+        while (value > max && !windowMaxInFlight.compareAndSet(max, value)) {
+            max = windowMaxInFlight.get();
+        }
+    }
+
+    /**
+     * Pasa huecos libres a las peticiones en espera.
+     */
+    private void drain() {
+        while (!waiters.isEmpty() && tryIncrement()) {
+            Waiter waiter = waiters.poll();
+            if (waiter == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            waiting.decrementAndGet();
+            if (!waiter.grant()) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private final class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final MonoSink<Boolean> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(MonoSink<Boolean> sink) {
+            this.sink = sink;
+        }
+
+        private boolean grant() {
+            if (state.compareAndSet(WAITING, GRANTED)) {
+                sink.success(Boolean.TRUE);
+                return true;
+            }
+            return false;
+        }
+
+        private void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                if (waiters.remove(this)) {
+                    waiting.decrementAndGet();
+                }
+            } else if (state.get() == GRANTED) {
+                // El hueco llegó justo cuando vencía la espera
+                release();
+            }
+        }
+    }
+}
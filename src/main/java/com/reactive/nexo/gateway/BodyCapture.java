@@ -0,0 +1,56 @@
+package com.reactive.nexo.gateway;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Copia los primeros bytes de un body mientras pasa en streaming, sin agregarlo.
+ * Los {@link DataBuffer} siguen su camino intactos; solo se copian hasta
+ * {@code maxBytes} y el resto se cuenta. Una instancia por body.
+ */
+public class BodyCapture {
+
+    private final int maxBytes;
+    private byte[] bytes = new byte[0];
+    private int size;
+    private long totalBytes;
+
+    public BodyCapture(int maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    public Flux<DataBuffer> tee(Flux<DataBuffer> body) {
+        return body.doOnNext(this::append);
+    }
+
+    private void append(DataBuffer buffer) {
+        int length = buffer.readableByteCount();
+        totalBytes += length;
+        int toCopy = Math.min(length, maxBytes - size);
+        if (toCopy <= 0) {
+            return;
+        }
+        if (size + toCopy > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.min(maxBytes, Math.max(size + toCopy, bytes.length * 2)));
+        }
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), size, toCopy);
+        size += toCopy;
+    }
+
+    /** Bytes copiados (como mucho {@code maxBytes}). */
+    public byte[] toByteArray() {
+        return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+    }
+
+    /** Bytes que han pasado en total, copiados o no. */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public boolean isTruncated() {
+        return totalBytes > size;
+    }
+}
@@ -0,0 +1,53 @@
+package com.reactive.nexo.gateway;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limita las peticiones en curso hacia un servicio upstream para que un servicio
+ * lento no acapare el gateway. Sin bloqueos: una petición sin hueco se rechaza.
+ */
+public class Bulkhead {
+
+    private final int maxConcurrent;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxConcurrent peticiones en curso permitidas, 0 o menos = sin límite
+     */
+    public Bulkhead(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public boolean tryAcquire() {
+        if (maxConcurrent <= 0) {
+            inFlight.incrementAndGet();
+            return true;
+        }
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= maxConcurrent) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("maxConcurrent", maxConcurrent);
+        snapshot.put("inFlight", inFlight.get());
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+}
@@ -0,0 +1,55 @@
+package com.reactive.nexo.gateway;
+
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Respuesta GET guardada en {@link ResponseCache}. Inmutable: la revalidación
+ * crea una entrada nueva que comparte el body.
+ */
+@Getter
+public class CachedResponse {
+
+    private final HttpStatusCode status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+    private final long storedAtMillis;
+    private final long expiresAtMillis;
+    /** Cache-Control: no-cache del upstream: siempre se revalida antes de servirla. */
+    private final boolean mustRevalidate;
+
+    public CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body,
+                          long storedAtMillis, long expiresAtMillis, boolean mustRevalidate) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.etag = headers.getETag();
+        this.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        this.storedAtMillis = storedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+        this.mustRevalidate = mustRevalidate;
+    }
+
+    public boolean isFresh(long nowMillis) {
+        return !mustRevalidate && nowMillis < expiresAtMillis;
+    }
+
+    public boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+
+    /** Peso aproximado en bytes para el presupuesto de la caché. */
+    public int weight() {
+        int weight = body.length + 64;
+        for (var entry : headers.entrySet()) {
+            weight += entry.getKey().length();
+            for (String value : entry.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+}
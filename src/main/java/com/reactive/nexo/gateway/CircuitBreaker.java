@@ -0,0 +1,280 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker sin bloqueos para una ruta del gateway.
+ * <p>
+ * Cuenta llamadas, fallos (errores de conexión, timeouts y 5xx) y llamadas lentas
+ * en una ventana deslizante de buckets de un segundo. Cuando la tasa de fallos o
+ * de lentitud supera el umbral pasa a OPEN y rechaza llamadas durante
+ * {@code waitInOpen}; después pasa a HALF_OPEN y deja pasar un número limitado de
+ * llamadas de prueba que deciden si se vuelve a cerrar o a abrir.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Permiso de una llamada concedido en CLOSED (o con el breaker desactivado). */
+    private static final Permit UNRESTRICTED = new Permit(null);
+
+    private final String name;
+    private final boolean enabled;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long waitInOpenNanos;
+    private final int halfOpenCalls;
+
+    private final SlidingWindow window;
+    private final AtomicReference<Phase> phase = new AtomicReference<>(Phase.closed());
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(String name, GatewayProperties.CircuitBreaker config) {
+        this.name = name;
+        this.enabled = config.isEnabled();
+        this.minimumCalls = Math.max(1, config.getMinimumCalls());
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+        this.slowCallNanos = config.getSlowCallDuration().toNanos();
+        this.waitInOpenNanos = config.getWaitInOpen().toNanos();
+        this.halfOpenCalls = Math.max(1, config.getHalfOpenCalls());
+        this.window = new SlidingWindow((int) Math.max(1, config.getWindow().getSeconds()));
+    }
+
+    /**
+     * Permiso para que la llamada salga hacia el upstream, o null si se rechaza. Cada
+     * permiso concedido debe cerrarse con {@link #onResult} o {@link #releasePermission}.
+     */
+    public Permit tryAcquirePermission() {
+        if (!enabled) {
+            return UNRESTRICTED;
+        }
+        Phase current = phase.get();
+        if (current.state == State.CLOSED) {
+            return UNRESTRICTED;
+        }
+        if (current.state == State.OPEN) {
+            if (System.nanoTime() - current.openedAtNanos < waitInOpenNanos) {
+                rejected.increment();
+                return null;
+            }
+            // Los permisos de prueba están listos antes de publicar HALF_OPEN
+            Phase halfOpen = Phase.halfOpen(current.openedAtNanos, halfOpenCalls);
+            if (phase.compareAndSet(current, halfOpen)) {
+                log.info("Circuit breaker {} is HALF_OPEN", name);
+            }
+            current = phase.get();
+            if (current.state != State.HALF_OPEN) {
+                // Otra llamada ya ha cerrado o reabierto el circuito
+                return tryAcquirePermission();
+            }
+        }
+        for (;;) {
+            int permits = current.permits.get();
+            if (permits <= 0) {
+                rejected.increment();
+                return null;
+            }
+            if (current.permits.compareAndSet(permits, permits - 1)) {
+                return new Permit(current);
+            }
+        }
+    }
+
+    /**
+     * Devuelve un permiso que no llegó a producir un resultado (cancelación, error del
+     * cliente). Solo vuelven al contador los permisos de prueba del HALF_OPEN en curso.
+     */
+    public void releasePermission(Permit permit) {
+        if (permit.halfOpen != null && phase.get() == permit.halfOpen) {
+            permit.halfOpen.permits.incrementAndGet();
+        }
+    }
+
+    public void onResult(Permit permit, long durationNanos, boolean failure) {
+        if (!enabled) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallNanos;
+        Phase current = phase.get();
+        if (current.state == State.HALF_OPEN) {
+            if (permit.halfOpen != current) {
+                // Llamada admitida antes de abrir el circuito: no es una llamada de prueba
+                return;
+            }
+            if (failure || slow) {
+                open(current);
+            } else if (current.successes.incrementAndGet() >= halfOpenCalls
+                    && phase.compareAndSet(current, Phase.closed())) {
+                window.reset();
+                log.info("Circuit breaker {} is CLOSED", name);
+            }
+            return;
+        }
+        if (current.state == State.OPEN) {
+            return;
+        }
+        window.record(failure, slow);
+        long calls = window.calls();
+        if (calls >= minimumCalls
+                && (window.failures() * 100 >= calls * failureRateThreshold
+                    || window.slowCalls() * 100 >= calls * slowCallRateThreshold)) {
+            open(current);
+        }
+    }
+
+    /**
+     * Segundos hasta que se permitan llamadas de prueba, para la cabecera Retry-After.
+     */
+    public long retryAfterSeconds() {
+        long remaining = waitInOpenNanos - (System.nanoTime() - phase.get().openedAtNanos);
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999L));
+    }
+
+    public State getState() {
+        return phase.get().state;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long calls = window.calls();
+        snapshot.put("enabled", enabled);
+        snapshot.put("state", getState());
+        snapshot.put("calls", calls);
+        snapshot.put("failureRate", calls == 0 ? 0 : window.failures() * 100 / calls);
+        snapshot.put("slowCallRate", calls == 0 ? 0 : window.slowCalls() * 100 / calls);
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+
+    private void open(Phase from) {
+        if (phase.compareAndSet(from, Phase.open(System.nanoTime()))) {
+            log.warn("Circuit breaker {} is OPEN (from {})", name, from.state);
+        }
+    }
+
+    /**
+     * Permiso concedido por {@link #tryAcquirePermission}; recuerda el HALF_OPEN que
+     * lo concedió (null si lo concedió CLOSED).
+     */
+    public static final class Permit {
+        private final Phase halfOpen;
+
+        private Permit(Phase halfOpen) {
+            this.halfOpen = halfOpen;
+        }
+    }
+
+    /**
+     * Estado del circuito con sus datos. Cada transición publica un objeto nuevo, así
+     * que los permisos y éxitos de un HALF_OPEN no se mezclan con los de otro.
+     */
+    private static final class Phase {
+        private final State state;
+        private final long openedAtNanos;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private Phase(State state, long openedAtNanos, int permits) {
+            this.state = state;
+            this.openedAtNanos = openedAtNanos;
+            this.permits = new AtomicInteger(permits);
+        }
+
+        private static Phase closed() {
+            return new Phase(State.CLOSED, 0, 0);
+        }
+
+        private static Phase open(long openedAtNanos) {
+            return new Phase(State.OPEN, openedAtNanos, 0);
+        }
+
+        private static Phase halfOpen(long openedAtNanos, int permits) {
+            return new Phase(State.HALF_OPEN, openedAtNanos, permits);
+        }
+    }
+
+    /**
+     * Contadores por segundo en un anillo de buckets. Un bucket se reinicia cuando
+     * se escribe en él en un segundo distinto; los totales son aproximados bajo
+     * concurrencia, suficiente para decidir la apertura del circuito.
+     */
+    private static final class SlidingWindow {
+        private final int size;
+        private final AtomicLongArray epochs;
+        private final AtomicLongArray calls;
+        private final AtomicLongArray failures;
+        private final AtomicLongArray slowCalls;
+
+        private SlidingWindow(int size) {
+            this.size = size;
+            this.epochs = new AtomicLongArray(size);
+            this.calls = new AtomicLongArray(size);
+            this.failures = new AtomicLongArray(size);
+            this.slowCalls = new AtomicLongArray(size);
+        }
+
+        private void record(boolean failure, boolean slow) {
+            long second = currentSecond();
+            int i = (int) (second % size);
+            long epoch = epochs.get(i);
+            if (epoch != second && epochs.compareAndSet(i, epoch, second)) {
+                calls.set(i, 0);
+                failures.set(i, 0);
+                slowCalls.set(i, 0);
+            }
+            calls.incrementAndGet(i);
+            if (failure) {
+                failures.incrementAndGet(i);
+            }
+            if (slow) {
+                slowCalls.incrementAndGet(i);
+            }
+        }
+
+        private long calls() {
+            return sum(calls);
+        }
+
+        private long failures() {
+            return sum(failures);
+        }
+
+        private long slowCalls() {
+            return sum(slowCalls);
+        }
+
+        private long sum(AtomicLongArray counters) {
+            long oldest = currentSecond() - size;
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                if (epochs.get(i) > oldest) {
+                    total += counters.get(i);
+                }
+            }
+            return total;
+        }
+
+        private void reset() {
+            for (int i = 0; i < size; i++) {
+                epochs.set(i, 0);
+            }
+        }
+
+        private static long currentSecond() {
+            return System.currentTimeMillis() / 1000;
+        }
+    }
+}
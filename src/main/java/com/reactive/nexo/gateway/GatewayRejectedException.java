@@ -0,0 +1,22 @@
+package com.reactive.nexo.gateway;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * El gateway rechaza la petición antes de llegar al upstream (circuito abierto,
+ * bulkhead lleno...). Se responde 503 con Retry-After.
+ */
+public class GatewayRejectedException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public GatewayRejectedException(String reason, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,88 @@
+package com.reactive.nexo.gateway;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma sin bloqueos de las latencias recientes de una ruta (tiempo hasta
+ * recibir los headers del upstream).
+ * <p>
+ * Usa buckets de media octava en microsegundos, así que un percentil se obtiene
+ * con un error máximo del 50% sin guardar muestras. Hay dos ventanas de
+ * {@value #SLOT_SECONDS} segundos que se van reutilizando, de modo que el
+ * histograma refleja como mucho el último minuto.
+ */
+public class LatencyTracker {
+
+    private static final int BUCKETS = 64;
+    private static final int SLOT_SECONDS = 30;
+    /** Muestras mínimas para que un percentil sea significativo. */
+    private static final long MIN_SAMPLES = 20;
+
+    private final AtomicLongArray epochs = new AtomicLongArray(2);
+    private final AtomicLongArray[] slots = { new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS) };
+
+    public void record(long durationNanos) {
+        long epoch = currentEpoch();
+        int i = (int) (epoch % 2);
+        long current = epochs.get(i);
+        if (current != epoch && epochs.compareAndSet(i, current, epoch)) {
+            for (int b = 0; b < BUCKETS; b++) {
+                slots[i].set(b, 0);
+            }
+        }
+        slots[i].incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(durationNanos)));
+    }
+
+    /**
+     * Cota superior del percentil {@code percentile} (0-100) en nanosegundos, o -1
+     * si todavía no hay muestras suficientes.
+     */
+    public long percentileNanos(double percentile) {
+        long oldest = currentEpoch() - 1;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < 2; i++) {
+            if (epochs.get(i) >= oldest) {
+                for (int b = 0; b < BUCKETS; b++) {
+                    long count = slots[i].get(b);
+                    counts[b] += count;
+                    total += count;
+                }
+            }
+        }
+        if (total < MIN_SAMPLES) {
+            return -1;
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= target) {
+                return TimeUnit.MICROSECONDS.toNanos(upperBound(b));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(upperBound(BUCKETS - 1));
+    }
+
+    private static int bucket(long micros) {
+        if (micros < 2) {
+            return 0;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int half = (int) ((micros >>> (msb - 1)) & 1);
+        return Math.min(BUCKETS - 1, msb * 2 + half);
+    }
+
+    private static long upperBound(int bucket) {
+        int msb = bucket / 2;
+        if (msb == 0) {
+            return 2;
+        }
+        return (1L << msb) + ((bucket % 2) + 1) * (1L << (msb - 1));
+    }
+
+    private static long currentEpoch() {
+        return System.currentTimeMillis() / 1000 / SLOT_SECONDS;
+    }
+}
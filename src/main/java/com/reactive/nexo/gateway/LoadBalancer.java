@@ -0,0 +1,145 @@
+package com.reactive.nexo.gateway;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reparte las peticiones de un servicio entre sus instancias sanas.
+ * <p>
+ * La selección no usa bloqueos: lee un array inmutable de instancias sanas que
+ * solo se reemplaza cuando cambia la salud de alguna. Si ninguna está sana se usa
+ * cualquiera de ellas (fail-open) para no cortar el servicio por un sondeo mal
+ * configurado.
+ */
+@Slf4j
+public class LoadBalancer {
+
+    public enum Strategy { ROUND_ROBIN, LEAST_OUTSTANDING, POWER_OF_TWO }
+
+    private final String serviceName;
+    private final Strategy strategy;
+    private final UpstreamInstance[] instances;
+    private volatile UpstreamInstance[] healthy;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public LoadBalancer(String serviceName, Strategy strategy, List<String> urls) {
+        this.serviceName = serviceName;
+        this.strategy = strategy;
+        this.instances = urls.stream().map(UpstreamInstance::new).toArray(UpstreamInstance[]::new);
+        this.healthy = instances;
+    }
+
+    public UpstreamInstance choose() {
+        UpstreamInstance[] candidates = healthy;
+        if (candidates.length == 0) {
+            candidates = instances;
+        }
+        int size = candidates.length;
+        if (size == 1) {
+            return candidates[0];
+        }
+        switch (strategy) {
+            case LEAST_OUTSTANDING: {
+                // Se empieza en una posición rotatoria para repartir los empates
+                int start = Math.floorMod(next.getAndIncrement(), size);
+                UpstreamInstance best = candidates[start];
+                for (int i = 1; i < size; i++) {
+                    UpstreamInstance candidate = candidates[(start + i) % size];
+                    if (candidate.getOutstanding() < best.getOutstanding()) {
+                        best = candidate;
+                    }
+                }
+                return best;
+            }
+            case POWER_OF_TWO: {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(size);
+                int second = random.nextInt(size - 1);
+                if (second >= first) {
+                    second++;
+                }
+                UpstreamInstance a = candidates[first];
+                UpstreamInstance b = candidates[second];
+                return a.getOutstanding() <= b.getOutstanding() ? a : b;
+            }
+            default:
+                return candidates[Math.floorMod(next.getAndIncrement(), size)];
+        }
+    }
+
+    /**
+     * Filtro del {@code WebClient} del servicio: elige instancia, reescribe
+     * esquema/host/puerto de la URL y cuenta la petición como en curso hasta que
+     * termina su body. Una cancelación después de recibir la respuesta (por ejemplo
+     * la del intento que gana un hedging) no la libera: el body sigue en curso.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> {
+            UpstreamInstance instance = choose();
+            URI target = UriComponentsBuilder.fromUri(request.url())
+                .scheme(instance.getUri().getScheme())
+                .host(instance.getUri().getHost())
+                .port(instance.getUri().getPort())
+                .build(true)
+                .toUri();
+            instance.acquire();
+            AtomicBoolean responded = new AtomicBoolean();
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    instance.release();
+                }
+            };
+            return next.exchange(ClientRequest.from(request).url(target).build())
+                .doOnNext(response -> responded.set(true))
+                .map(response -> response.mutate()
+                    .body(body -> body.doFinally(signal -> release.run()))
+                    .build())
+                .doOnError(e -> release.run())
+                .doOnCancel(() -> {
+                    if (!responded.get()) {
+                        release.run();
+                    }
+                });
+        };
+    }
+
+    public UpstreamInstance[] getInstances() {
+        return instances;
+    }
+
+    void onHealthChanged(UpstreamInstance instance) {
+        List<UpstreamInstance> current = new ArrayList<>();
+        for (UpstreamInstance candidate : instances) {
+            if (candidate.isHealthy()) {
+                current.add(candidate);
+            }
+        }
+        healthy = current.toArray(new UpstreamInstance[0]);
+        log.warn("Upstream {} instance {} is now {} ({} of {} healthy)", serviceName, instance.getUrl(),
+            instance.isHealthy() ? "UP" : "DOWN", current.size(), instances.length);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("service", serviceName);
+        snapshot.put("strategy", strategy);
+        List<Map<String, Object>> instanceStates = new ArrayList<>();
+        for (UpstreamInstance instance : instances) {
+            instanceStates.add(instance.snapshot());
+        }
+        snapshot.put("instances", instanceStates);
+        return snapshot;
+    }
+}
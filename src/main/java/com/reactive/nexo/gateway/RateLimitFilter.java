@@ -0,0 +1,65 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Aplica los límites de {@link RateLimiter} por IP, por identificación cuando va en
+ * el path y por employee_id en las rutas proxy. Va justo después de
+ * {@link AccessLogFilter}, de modo que las peticiones rechazadas con 429 quedan en
+ * el log de acceso pero no llegan a verificar el JWT ni a los upstreams.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RateLimitFilter implements WebFilter {
+
+    private final RateLimiter rateLimiter;
+    private final JwtUtil jwtUtil;
+
+    public RateLimitFilter(RateLimiter rateLimiter, JwtUtil jwtUtil) {
+        this.rateLimiter = rateLimiter;
+        this.jwtUtil = jwtUtil;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!rateLimiter.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().value();
+        String ipAddress = request.getRemoteAddress() != null ? request.getRemoteAddress().getHostString() : "unknown";
+
+        if (!rateLimiter.acquire(exchange, RateLimiter.KeyType.IP, ipAddress)) {
+            return exchange.getResponse().setComplete();
+        }
+        String identification = rateLimiter.identificationFromPath(path);
+        if (identification != null && !rateLimiter.acquire(exchange, RateLimiter.KeyType.IDENTIFICATION, identification)) {
+            return exchange.getResponse().setComplete();
+        }
+        if (rateLimiter.hasRules(path, RateLimiter.KeyType.EMPLOYEE)) {
+            // Sin token válido la petición cuenta contra su IP; el JwtAuthenticationFilter la rechazará después
+            String employeeId = employeeId(exchange);
+            String key = employeeId != null ? "employee:" + employeeId : "ip:" + ipAddress;
+            if (!rateLimiter.acquire(exchange, RateLimiter.KeyType.EMPLOYEE, key)) {
+                return exchange.getResponse().setComplete();
+            }
+        }
+        return chain.filter(exchange);
+    }
+
+    private String employeeId(ServerWebExchange exchange) {
+        // Quedan en el exchange, así que JwtAuthenticationFilter no vuelve a verificar el token
+        Claims claims = jwtUtil.requestClaims(exchange);
+        Object employeeId = claims != null ? claims.get("employee_id") : null;
+        return employeeId != null ? employeeId.toString() : null;
+    }
+}
@@ -0,0 +1,227 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Límites de tasa por cliente. Cada regla aplica a un prefijo de path y a un tipo
+ * de clave: IP del cliente, identificación del empleado (endpoints de auth y 2FA) o
+ * employee_id del JWT (rutas proxy). Las reglas salen de gateway.rate-limit.rules y
+ * de routes[].rate-limit.
+ * <p>
+ * {@link RateLimitFilter} aplica las claves que se conocen antes de leer el body;
+ * los controladores que reciben la identificación en el body llaman a
+ * {@link #acquire(ServerWebExchange, KeyType, String)} una vez deserializado.
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+
+    public enum KeyType { IP, IDENTIFICATION, EMPLOYEE }
+
+    public static final String LIMIT_HEADER = "RateLimit-Limit";
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RESET_HEADER = "RateLimit-Reset";
+    public static final String POLICY_HEADER = "RateLimit-Policy";
+
+    private final boolean enabled;
+    private final GatewayProperties.RateLimit config;
+    private final RouteRegistry routeRegistry;
+    private final List<Rule> rules = new ArrayList<>();
+    private boolean routeRules;
+    private Disposable sweeper;
+
+    public RateLimiter(GatewayProperties properties, RouteRegistry routeRegistry) {
+        this.config = properties.getRateLimit();
+        this.enabled = config.isEnabled();
+        this.routeRegistry = routeRegistry;
+        for (GatewayProperties.RateLimitRule rule : config.getRules()) {
+            add(rule, rule.getId(), rule.getPath(), null, rule.getKey() != null ? rule.getKey() : KeyType.IP);
+        }
+        for (GatewayProperties.Route route : properties.getRoutes()) {
+            GatewayProperties.RateLimitRule rule = route.getRateLimit();
+            if (rule != null) {
+                // Se aplica a las peticiones que resuelve la ruta, incluidos sus segmentos "*"
+                String routeId = route.getId() != null ? route.getId() : route.getPath();
+                add(rule, rule.getId() != null ? rule.getId() : routeId, route.getPath(), routeId,
+                    rule.getKey() != null ? rule.getKey() : KeyType.EMPLOYEE);
+                routeRules = true;
+            }
+        }
+        // El prefijo más largo primero, para que sus headers tengan prioridad en caso de empate
+        rules.sort(Comparator.comparingInt((Rule rule) -> rule.path.length()).reversed());
+    }
+
+    public boolean isEnabled() {
+        return enabled && !rules.isEmpty();
+    }
+
+    /**
+     * ¿Hay reglas de ese tipo de clave para el path? Evita calcular la clave si no.
+     */
+    public boolean hasRules(String path, KeyType type) {
+        String routeId = routeIdOf(path);
+        for (Rule rule : rules) {
+            if (rule.type == type && rule.matches(path, routeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Consume un token de cada regla del tipo indicado que aplica al path de la
+     * petición. Añade los headers RateLimit-* de la regla más restrictiva y, si alguna
+     * rechaza, responde 429 con Retry-After y devuelve false.
+     */
+    public boolean acquire(ServerWebExchange exchange, KeyType type, String key) {
+        if (!enabled || key == null) {
+            return true;
+        }
+        String path = exchange.getRequest().getPath().value();
+        String routeId = routeIdOf(path);
+        TokenBuckets.Decision tightest = null;
+        for (Rule rule : rules) {
+            if (rule.type != type || !rule.matches(path, routeId)) {
+                continue;
+            }
+            TokenBuckets.Decision decision = rule.buckets.tryAcquire(key);
+            if (tightest == null || !decision.isAllowed()
+                    || (tightest.isAllowed() && decision.getRemaining() < tightest.getRemaining())) {
+                tightest = decision;
+            }
+            if (!decision.isAllowed()) {
+                break;
+            }
+        }
+        if (tightest == null) {
+            return true;
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.set(LIMIT_HEADER, String.valueOf(tightest.getBuckets().getBurst()));
+        headers.set(REMAINING_HEADER, String.valueOf(tightest.getRemaining()));
+        headers.set(RESET_HEADER, String.valueOf(seconds(tightest.getResetNanos())));
+        headers.set(POLICY_HEADER, tightest.getBuckets().policy());
+        if (tightest.isAllowed()) {
+            return true;
+        }
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, seconds(tightest.getRetryAfterNanos()))));
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        log.debug("Rate limit {} exceeded for {} {}", tightest.getBuckets().getId(), type, key);
+        return false;
+    }
+
+    /**
+     * Identificación (tipo/número) en los dos segmentos que siguen al prefijo de una
+     * regla IDENTIFICATION, como en /2fa/generate-qr/{tipo}/{número}; null si no la hay.
+     */
+    public String identificationFromPath(String path) {
+        for (Rule rule : rules) {
+            if (rule.type == KeyType.IDENTIFICATION && rule.routeId == null
+                    && rule.matches(path, null) && path.length() > rule.path.length()) {
+                String[] segments = path.substring(rule.path.length() + 1).split("/");
+                if (segments.length >= 2 && !segments[0].isEmpty() && !segments[1].isEmpty()) {
+                    return segments[0] + "/" + segments[1];
+                }
+            }
+        }
+        return null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        sweeper = Flux.interval(config.getSweepInterval(), config.getSweepInterval())
+            .onBackpressureDrop()
+            .subscribe(tick -> rules.forEach(rule -> rule.buckets.sweep()));
+        log.info("Rate limiting {} rules, {} shards, up to {} keys per rule", rules.size(), config.getShards(), config.getMaxKeys());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        Map<String, Object> byRule = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("path", rule.path);
+            stats.put("key", rule.type);
+            stats.putAll(rule.buckets.snapshot());
+            byRule.put(rule.buckets.getId(), stats);
+        }
+        snapshot.put("rules", byRule);
+        return snapshot;
+    }
+
+    private String routeIdOf(String path) {
+        if (!routeRules) {
+            return null;
+        }
+        RouteDescriptor route = routeRegistry.resolve(path);
+        return route != null ? route.getId() : null;
+    }
+
+    private void add(GatewayProperties.RateLimitRule rule, String ruleId, String rulePath, String routeId, KeyType type) {
+        if (rulePath == null) {
+            throw new IllegalStateException("Rate limit rule without path: " + ruleId);
+        }
+        String path = rulePath.endsWith("/") ? rulePath.substring(0, rulePath.length() - 1) : rulePath;
+        String id = ruleId != null ? ruleId : type.name().toLowerCase() + ":" + path;
+        rules.add(new Rule(path, routeId, type, new TokenBuckets(id, rule, config.getShards(), config.getMaxKeys())));
+        log.info("Rate limit {} on {} by {}: {}", id, path, type, rules.get(rules.size() - 1).buckets.policy());
+    }
+
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static final class Rule {
+        private final String path;
+        /** Ruta proxy a la que pertenece la regla, o null para reglas por prefijo. */
+        private final String routeId;
+        private final KeyType type;
+        private final TokenBuckets buckets;
+
+        private Rule(String path, String routeId, KeyType type, TokenBuckets buckets) {
+            this.path = path;
+            this.routeId = routeId;
+            this.type = type;
+            this.buckets = buckets;
+        }
+
+        /** Ruta resuelta para las reglas de routes[]; prefijo por segmentos completos para el resto. */
+        private boolean matches(String requestPath, String requestRouteId) {
+            if (routeId != null) {
+                return routeId.equals(requestRouteId);
+            }
+            return requestPath.startsWith(path)
+                && (requestPath.length() == path.length() || requestPath.charAt(path.length()) == '/');
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.reactive.nexo.gateway;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactive.nexo.config.GatewayProperties;
+import com.reactive.nexo.security.RolePermissionTable;
+import com.reactive.nexo.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight para GET idénticos: mientras una llamada al upstream está en curso,
+ * las peticiones con la misma clave se suscriben a su resultado en lugar de lanzar
+ * otra. El body agregado se comparte tal cual entre todos los suscriptores.
+ * <p>
+ * La llamada compartida se cancela solo cuando se cancelan todos sus suscriptores,
+ * y sale del mapa en cuanto termina, así que nunca se sirve un resultado antiguo.
+ */
+@Component
+public class RequestCoalescer {
+
+    private final int maxBodyBytes;
+    private final Map<String, Mono<ResponseEntity<byte[]>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+    /** Hash de cada lista de permisos, por identidad como en PermissionChecker. */
+    private final Cache<List<Map<String, Object>>, String> scopes = Caffeine.newBuilder()
+        .weakKeys()
+        .maximumSize(10_000)
+        .build();
+
+    public RequestCoalescer(GatewayProperties properties) {
+        this.maxBodyBytes = properties.getCoalesce().getMaxBodyBytes();
+    }
+
+    public boolean isEnabled(RouteDescriptor route) {
+        return route.getCoalesce() != null;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * Clave de agrupación: ruta, ámbito de autorización, URI y Accept. Solo comparten
+     * respuesta las peticiones con los mismos permisos (rol y versión de permisos en
+     * los tokens compactos, hash del conjunto de permisos en los completos); las
+     * rutas con {@code per-employee} añaden además el empleado, que
+     * JwtAuthenticationFilter ya ha comprobado contra el token. Null si no hay token
+     * verificado o falta el empleado: entonces no se agrupa.
+     */
+    public String key(RouteDescriptor route, ServerWebExchange exchange, String pathAndQuery) {
+        String scope = scope(exchange);
+        if (scope == null) {
+            return null;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        StringBuilder key = new StringBuilder(route.getId()).append('|').append(scope);
+        if (route.getCoalesce().isPerEmployee()) {
+            String employeeId = request.getHeaders().getFirst(ResponseCache.EMPLOYEE_HEADER);
+            if (employeeId == null) {
+                return null;
+            }
+            key.append('|').append(employeeId);
+        }
+        key.append('|').append(pathAndQuery).append('|');
+        String accept = request.getHeaders().getFirst("Accept");
+        if (accept != null) {
+            key.append(accept);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Ejecuta {@code call} o se une a la ejecución en curso con la misma clave.
+     */
+    public Mono<ResponseEntity<byte[]>> execute(RouteDescriptor route, String key,
+                                                Supplier<Mono<ResponseEntity<byte[]>>> call) {
+        return Mono.defer(() -> {
+            RouteStats stats = stats(route);
+            Mono<ResponseEntity<byte[]>> existing = inFlight.get(key);
+            if (existing != null) {
+                stats.followers.increment();
+                return existing;
+            }
+            AtomicReference<Mono<ResponseEntity<byte[]>>> self = new AtomicReference<>();
+            Mono<ResponseEntity<byte[]>> shared = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .flux()
+                .replay(1)
+                .refCount()
+                .next();
+            self.set(shared);
+            Mono<ResponseEntity<byte[]>> winner = inFlight.putIfAbsent(key, shared);
+            if (winner != null) {
+                stats.followers.increment();
+                return winner;
+            }
+            stats.leaders.increment();
+            return shared;
+        });
+    }
+
+    public void recordFallback(RouteDescriptor route) {
+        stats(route).fallbacks.increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("inFlight", inFlight.size());
+        Map<String, Object> routes = new LinkedHashMap<>();
+        routeStats.forEach((route, stats) -> routes.put(route, stats.snapshot()));
+        snapshot.put("routes", routes);
+        return snapshot;
+    }
+
+    /**
+     * Ámbito de autorización del token verificado de la petición, o null si no hay.
+     */
+    @SuppressWarnings("unchecked")
+    private String scope(ServerWebExchange exchange) {
+        Object claims = exchange.getAttribute(JwtUtil.CLAIMS_ATTRIBUTE);
+        if (!(claims instanceof Claims)) {
+            return null;
+        }
+        Claims verified = (Claims) claims;
+        Object permissions = verified.get("permissions");
+        if (permissions instanceof List) {
+            return "p" + scopes.get((List<Map<String, Object>>) permissions, RolePermissionTable::version);
+        }
+        Object roleId = verified.get(JwtUtil.ROLE_CLAIM);
+        if (roleId instanceof Number) {
+            return "r" + roleId + ':' + verified.get(JwtUtil.PERMISSION_VERSION_CLAIM);
+        }
+        return null;
+    }
+
+    private RouteStats stats(RouteDescriptor route) {
+        return routeStats.computeIfAbsent(route.getId(), id -> new RouteStats());
+    }
+
+    private static final class RouteStats {
+        /** Peticiones que lanzaron la llamada al upstream. */
+        private final LongAdder leaders = new LongAdder();
+        /** Peticiones servidas con la llamada de otra. */
+        private final LongAdder followers = new LongAdder();
+        /** Respuestas demasiado grandes para compartir. */
+        private final LongAdder fallbacks = new LongAdder();
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("leaders", leaders.sum());
+            snapshot.put("followers", followers.sum());
+            snapshot.put("fallbacks", fallbacks.sum());
+            return snapshot;
+        }
+    }
+}
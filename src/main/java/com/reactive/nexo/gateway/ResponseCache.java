@@ -0,0 +1,301 @@
+package com.reactive.nexo.gateway;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.reactive.nexo.config.GatewayProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria de respuestas GET del proxy.
+ * <p>
+ * Las entradas se acotan por bytes con la política W-TinyLFU de Caffeine y se
+ * indexan por ruta, ámbito (compartido o empleado), path con query y los headers
+ * de la petición que la ruta declara en {@code vary-headers}. Se respeta
+ * Cache-Control (no-store, no-cache, private, public, max-age, s-maxage) y las
+ * entradas vencidas con ETag o Last-Modified se revalidan con una petición
+ * condicional. Todas las peticiones llevan Authorization, así que en ámbito
+ * compartido solo se guardan las respuestas que lo permiten de forma explícita
+ * con public, s-maxage o must-revalidate (RFC 9111, 3.5).
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+
+    public static final String EMPLOYEE_HEADER = "x-employee-id";
+
+    private final boolean enabled;
+    private final int maxEntryBytes;
+    private final Cache<String, CachedResponse> entries;
+    private final Map<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+
+    public ResponseCache(GatewayProperties properties) {
+        GatewayProperties.Cache config = properties.getCache();
+        this.enabled = config.isEnabled();
+        this.maxEntryBytes = config.getMaxEntryBytes();
+        this.entries = Caffeine.newBuilder()
+            .maximumWeight(config.getMaxBytes())
+            .weigher((String key, CachedResponse value) -> key.length() + value.weight())
+            .expireAfterWrite(config.getMaxRetention())
+            .recordStats()
+            .build();
+    }
+
+    public boolean isEnabled(RouteDescriptor route) {
+        return enabled && route.getCache() != null;
+    }
+
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Clave de la petición, o null si no se puede cachear (ruta por empleado sin empleado).
+     */
+    public String key(RouteDescriptor route, ServerHttpRequest request, String pathAndQuery) {
+        GatewayProperties.RouteCache policy = route.getCache();
+        StringBuilder key = new StringBuilder(route.getId()).append('|');
+        if (policy.isPerEmployee()) {
+            String employeeId = request.getHeaders().getFirst(EMPLOYEE_HEADER);
+            if (employeeId == null) {
+                return null;
+            }
+            key.append(employeeId);
+        }
+        key.append('|').append(pathAndQuery);
+        for (String header : policy.getVaryHeaders()) {
+            key.append('|');
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    public CachedResponse get(String key) {
+        return entries.getIfPresent(key);
+    }
+
+    /**
+     * Guarda la respuesta si es almacenable según su status y Cache-Control.
+     */
+    public void store(RouteDescriptor route, String key, HttpStatusCode status, HttpHeaders headers, byte[] body) {
+        if (!isStorable(route, status, headers) || body.length > maxEntryBytes) {
+            return;
+        }
+        Directives directives = Directives.parse(headers.getCacheControl());
+        long now = System.currentTimeMillis();
+        long ttlMillis = ttlMillis(route, directives, headers, now);
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(headers);
+        CachedResponse cached = new CachedResponse(status, copy, body, now, now + ttlMillis, directives.noCache);
+        if (ttlMillis <= 0 && !cached.hasValidators()) {
+            return;
+        }
+        entries.put(key, cached);
+        stats(route).stores.increment();
+    }
+
+    /**
+     * Tras un 304 del upstream: misma representación con vigencia renovada.
+     */
+    public CachedResponse refresh(RouteDescriptor route, String key, CachedResponse cached, HttpHeaders notModifiedHeaders) {
+        Directives directives = Directives.parse(notModifiedHeaders.getCacheControl() != null
+            ? notModifiedHeaders.getCacheControl() : cached.getHeaders().getCacheControl());
+        long now = System.currentTimeMillis();
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(cached.getHeaders());
+        for (String name : List.of(HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES, HttpHeaders.DATE, HttpHeaders.ETAG)) {
+            List<String> values = notModifiedHeaders.get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        }
+        CachedResponse refreshed = new CachedResponse(cached.getStatus(), headers, cached.getBody(), now,
+            now + ttlMillis(route, directives, headers, now), directives.noCache);
+        if (!isStorable(route, cached.getStatus(), headers)) {
+            // El 304 ha cambiado Cache-Control y la entrada ya no se puede guardar
+            entries.invalidate(key);
+            return refreshed;
+        }
+        entries.put(key, refreshed);
+        stats(route).revalidations.increment();
+        return refreshed;
+    }
+
+    public boolean isStorable(RouteDescriptor route, HttpStatusCode status, HttpHeaders headers) {
+        if (status.value() != HttpStatus.OK.value()) {
+            return false;
+        }
+        long contentLength = headers.getContentLength();
+        if (contentLength > maxEntryBytes) {
+            return false;
+        }
+        Directives directives = Directives.parse(headers.getCacheControl());
+        if (directives.noStore) {
+            return false;
+        }
+        if (!route.getCache().isPerEmployee() && (directives.isPrivate
+                || !(directives.isPublic || directives.sMaxAge >= 0 || directives.mustRevalidate))) {
+            // Respuesta a una petición autenticada: solo se comparte entre usuarios si el upstream lo permite
+            return false;
+        }
+        // Solo se cachea si la clave cubre todos los headers por los que varía la respuesta
+        for (String vary : headers.getVary()) {
+            if ("*".equals(vary) || !containsIgnoreCase(route.getCache().getVaryHeaders(), vary)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cache-Control de la petición: no-store evita la caché, no-cache o max-age=0 obliga a revalidar.
+     */
+    public static boolean bypass(ServerHttpRequest request) {
+        return Directives.parse(request.getHeaders().getCacheControl()).noStore;
+    }
+
+    public static boolean forceRevalidation(ServerHttpRequest request) {
+        Directives directives = Directives.parse(request.getHeaders().getCacheControl());
+        return directives.noCache || directives.maxAge == 0;
+    }
+
+    public void recordHit(RouteDescriptor route) {
+        stats(route).hits.increment();
+    }
+
+    public void recordMiss(RouteDescriptor route) {
+        stats(route).misses.increment();
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+        log.info("Response cache invalidated");
+    }
+
+    public void invalidateRoute(String routeId) {
+        String prefix = routeId + "|";
+        entries.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        log.info("Response cache invalidated for route {}", routeId);
+    }
+
+    public Map<String, Object> snapshot() {
+        CacheStats cacheStats = entries.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("entries", entries.estimatedSize());
+        snapshot.put("weightBytes", entries.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        snapshot.put("evictions", cacheStats.evictionCount());
+        Map<String, Object> routes = new LinkedHashMap<>();
+        routeStats.forEach((route, stats) -> routes.put(route, stats.snapshot()));
+        snapshot.put("routes", routes);
+        return snapshot;
+    }
+
+    private RouteStats stats(RouteDescriptor route) {
+        return routeStats.computeIfAbsent(route.getId(), id -> new RouteStats());
+    }
+
+    private static long ttlMillis(RouteDescriptor route, Directives directives, HttpHeaders headers, long now) {
+        if (directives.sMaxAge >= 0) {
+            return TimeUnit.SECONDS.toMillis(directives.sMaxAge);
+        }
+        if (directives.maxAge >= 0) {
+            return TimeUnit.SECONDS.toMillis(directives.maxAge);
+        }
+        if (headers.getExpires() > 0) {
+            return Math.max(0, headers.getExpires() - now);
+        }
+        return route.getCache().getTtl().toMillis();
+    }
+
+    private static boolean containsIgnoreCase(List<String> values, String value) {
+        for (String candidate : values) {
+            if (candidate.equalsIgnoreCase(value.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class RouteStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder revalidations = new LongAdder();
+        private final LongAdder stores = new LongAdder();
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            snapshot.put("hits", hitCount);
+            snapshot.put("misses", missCount);
+            snapshot.put("revalidations", revalidations.sum());
+            snapshot.put("stores", stores.sum());
+            snapshot.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+            return snapshot;
+        }
+    }
+
+    /**
+     * Directivas de Cache-Control relevantes para la caché.
+     */
+    private static final class Directives {
+        private boolean noStore;
+        private boolean noCache;
+        private boolean isPrivate;
+        private boolean isPublic;
+        private boolean mustRevalidate;
+        private long maxAge = -1;
+        private long sMaxAge = -1;
+
+        private static Directives parse(String cacheControl) {
+            Directives directives = new Directives();
+            if (cacheControl == null || cacheControl.isEmpty()) {
+                return directives;
+            }
+            for (String token : cacheControl.split(",")) {
+                String directive = token.trim().toLowerCase(Locale.ROOT);
+                if (directive.equals("no-store")) {
+                    directives.noStore = true;
+                } else if (directive.startsWith("no-cache")) {
+                    directives.noCache = true;
+                } else if (directive.startsWith("private")) {
+                    directives.isPrivate = true;
+                } else if (directive.equals("public")) {
+                    directives.isPublic = true;
+                } else if (directive.equals("must-revalidate")) {
+                    directives.mustRevalidate = true;
+                } else if (directive.startsWith("max-age=")) {
+                    directives.maxAge = seconds(directive.substring(8));
+                } else if (directive.startsWith("s-maxage=")) {
+                    directives.sMaxAge = seconds(directive.substring(9));
+                }
+            }
+            return directives;
+        }
+
+        private static long seconds(String value) {
+            try {
+                return Long.parseLong(value.replace("\"", "").trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Presupuesto global de reintentos del gateway.
+ * <p>
+ * Cuenta peticiones y reintentos (incluidos los hedges) en una ventana deslizante
+ * de buckets de un segundo; un reintento solo se permite mientras los de la
+ * ventana no superen {@code ratio} de las peticiones más un mínimo por segundo.
+ * Así, si un upstream cae, los reintentos no multiplican la carga que recibe.
+ */
+@Component
+public class RetryBudget {
+
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final int size;
+    private final AtomicLongArray epochs;
+    private final AtomicLongArray requests;
+    private final AtomicLongArray retries;
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RetryBudget(GatewayProperties properties) {
+        GatewayProperties.RetryBudget config = properties.getRetryBudget();
+        this.ratio = config.getRatio();
+        this.minRetriesPerSecond = config.getMinRetriesPerSecond();
+        this.size = (int) Math.max(1, config.getWindow().getSeconds());
+        this.epochs = new AtomicLongArray(size);
+        this.requests = new AtomicLongArray(size);
+        this.retries = new AtomicLongArray(size);
+    }
+
+    /** Cuenta una petición original (no los reintentos). */
+    public void recordRequest() {
+        requests.incrementAndGet(slot());
+    }
+
+    /**
+     * Consume un reintento del presupuesto si queda; si no, lo cuenta como rechazado.
+     */
+    public boolean tryAcquireRetry() {
+        long allowed = (long) (sum(requests) * ratio) + (long) minRetriesPerSecond * size;
+        if (sum(retries) >= allowed) {
+            rejected.increment();
+            return false;
+        }
+        retries.incrementAndGet(slot());
+        return true;
+    }
+
+    public void recordRetry() {
+        retried.increment();
+    }
+
+    public void recordHedge() {
+        hedged.increment();
+    }
+
+    public void recordHedgeWin() {
+        hedgeWins.increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("windowRequests", sum(requests));
+        snapshot.put("windowRetries", sum(retries));
+        snapshot.put("ratio", ratio);
+        snapshot.put("retries", retried.sum());
+        snapshot.put("hedges", hedged.sum());
+        snapshot.put("hedgeWins", hedgeWins.sum());
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+
+    private int slot() {
+        long second = currentSecond();
+        int i = (int) (second % size);
+        long epoch = epochs.get(i);
+        if (epoch != second && epochs.compareAndSet(i, epoch, second)) {
+            requests.set(i, 0);
+            retries.set(i, 0);
+        }
+        return i;
+    }
+
+    private long sum(AtomicLongArray counters) {
+        long oldest = currentSecond() - size;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (epochs.get(i) > oldest) {
+                total += counters.get(i);
+            }
+        }
+        return total;
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+/**
+ * Ruta proxy compilada: upstream al que se reenvía y políticas que aplican.
+ * Inmutable; se crea una vez al arrancar y se comparte entre peticiones.
+ */
+@Getter
+@Builder
+public class RouteDescriptor {
+
+    private final String id;
+    /** Patrón por segmentos tal como se configuró, por ejemplo /api/v1/users. */
+    private final String pattern;
+    /** Número de segmentos del patrón; a mayor profundidad, prefijo más largo. */
+    private final int depth;
+    private final String serviceName;
+    private final String upstreamUrl;
+    private final WebClient webClient;
+    /** Tiempo máximo de respuesta del upstream, null si no hay límite. */
+    private final Duration responseTimeout;
+    /** Tamaño máximo del body reenviado en bytes, -1 si no hay límite. */
+    private final long maxBodyBytes;
+    private final CircuitBreaker circuitBreaker;
+    /** Compartido por todas las rutas del mismo servicio. */
+    private final Bulkhead bulkhead;
+    /** Política de caché de GET, null si la ruta no usa caché. */
+    private final GatewayProperties.RouteCache cache;
+    /** Agrupación de GET idénticos, null si la ruta no la usa. */
+    private final GatewayProperties.RouteCoalesce coalesce;
+    /** Límite adaptativo de peticiones en curso de la ruta. */
+    private final AdaptiveLimiter limiter;
+    private final GatewayProperties.Retry retry;
+    private final GatewayProperties.Hedge hedge;
+    /** Latencias recientes del upstream, de donde sale el retardo del hedging. */
+    private final LatencyTracker latency;
+}
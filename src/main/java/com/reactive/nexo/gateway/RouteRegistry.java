@@ -0,0 +1,73 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compila al arrancar las rutas de {@link GatewayProperties} en una {@link RouteTable}.
+ * Las rutas que apuntan al mismo servicio comparten el {@link WebClient} de
+ * {@link UpstreamClientRegistry}.
+ */
+@Component
+@Slf4j
+public class RouteRegistry {
+
+    private final RouteTable routeTable;
+
+    public RouteRegistry(GatewayProperties properties, UpstreamClientRegistry clientRegistry) {
+        GatewayProperties.Proxy proxy = properties.getProxy();
+        List<RouteDescriptor> routes = new ArrayList<>();
+        Map<String, Bulkhead> bulkheads = new HashMap<>();
+
+        for (GatewayProperties.Route route : properties.getRoutes()) {
+            GatewayProperties.Service service = properties.getServices().get(route.getService());
+            if (service == null || service.instanceUrls().isEmpty()) {
+                throw new IllegalStateException("Gateway route " + route.getPath()
+                    + " references unknown service: " + route.getService());
+            }
+            WebClient webClient = clientRegistry.client(route.getService());
+            String id = route.getId() != null ? route.getId() : route.getPath();
+            GatewayProperties.CircuitBreaker breakerConfig = route.getCircuitBreaker() != null
+                ? route.getCircuitBreaker() : properties.getCircuitBreaker();
+
+            routes.add(RouteDescriptor.builder()
+                .id(id)
+                .pattern(route.getPath())
+                .depth(RouteTable.depth(route.getPath()))
+                .serviceName(route.getService())
+                .upstreamUrl(String.join(",", service.instanceUrls()))
+                .webClient(webClient)
+                .responseTimeout(route.getResponseTimeout() != null ? route.getResponseTimeout() : proxy.getResponseTimeout())
+                .maxBodyBytes(route.getMaxBodyBytes() != null ? route.getMaxBodyBytes() : proxy.getMaxBodyBytes())
+                .circuitBreaker(new CircuitBreaker(id, breakerConfig))
+                .bulkhead(bulkheads.computeIfAbsent(route.getService(), name -> new Bulkhead(service.getMaxConcurrentRequests())))
+                .cache(route.getCache() != null && route.getCache().isEnabled() ? route.getCache() : null)
+                .coalesce(route.getCoalesce() != null && route.getCoalesce().isEnabled() ? route.getCoalesce() : null)
+                .limiter(new AdaptiveLimiter(id, route.getLimiter() != null ? route.getLimiter() : properties.getLimiter()))
+                .retry(route.getRetry() != null ? route.getRetry() : properties.getRetry())
+                .hedge(route.getHedge() != null ? route.getHedge() : properties.getHedge())
+                .latency(new LatencyTracker())
+                .build());
+            log.info("Gateway route {} -> {} ({})", route.getPath(), route.getService(), service.instanceUrls());
+        }
+        this.routeTable = RouteTable.compile(routes);
+    }
+
+    /**
+     * Ruta para el path de la petición, o null si ningún servicio la atiende.
+     */
+    public RouteDescriptor resolve(String path) {
+        return routeTable.match(path);
+    }
+
+    public List<RouteDescriptor> getRoutes() {
+        return routeTable.getRoutes();
+    }
+}
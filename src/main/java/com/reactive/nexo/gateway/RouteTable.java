@@ -0,0 +1,148 @@
+package com.reactive.nexo.gateway;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabla de rutas compilada como un trie de segmentos de path.
+ * <p>
+ * {@link #match(String)} recorre el path original sin crear substrings ni arrays y
+ * devuelve la ruta con el prefijo (por segmentos) más largo. Un segmento "*" en el
+ * patrón acepta cualquier segmento; ante empate gana el segmento literal.
+ * La tabla es inmutable y segura para lectura concurrente.
+ */
+public final class RouteTable {
+
+    private static final String WILDCARD = "*";
+
+    private final Node root;
+    private final List<RouteDescriptor> routes;
+
+    private RouteTable(Node root, List<RouteDescriptor> routes) {
+        this.root = root;
+        this.routes = routes;
+    }
+
+    public static RouteTable compile(Collection<RouteDescriptor> routes) {
+        Builder root = new Builder();
+        for (RouteDescriptor route : routes) {
+            Builder node = root;
+            for (String segment : segments(route.getPattern())) {
+                node = node.children.computeIfAbsent(segment, s -> new Builder());
+            }
+            if (node.route != null) {
+                throw new IllegalStateException("Duplicate gateway route for pattern " + route.getPattern()
+                    + " (" + node.route.getId() + ", " + route.getId() + ")");
+            }
+            node.route = route;
+        }
+        return new RouteTable(root.build(), List.copyOf(routes));
+    }
+
+    /**
+     * Número de segmentos no vacíos de un patrón.
+     */
+    public static int depth(String pattern) {
+        return segments(pattern).size();
+    }
+
+    public List<RouteDescriptor> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Ruta con el prefijo más largo para el path, o null si ninguna aplica.
+     */
+    public RouteDescriptor match(String path) {
+        return find(root, path, 0);
+    }
+
+    private static RouteDescriptor find(Node node, String path, int from) {
+        RouteDescriptor best = node.route;
+        int length = path.length();
+        int start = from;
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start >= length) {
+            return best;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        Node exact = node.child(path, start, end - start);
+        if (exact != null) {
+            best = deeper(best, find(exact, path, end));
+        }
+        if (node.wildcard != null) {
+            best = deeper(best, find(node.wildcard, path, end));
+        }
+        return best;
+    }
+
+    private static RouteDescriptor deeper(RouteDescriptor current, RouteDescriptor candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.getDepth() > current.getDepth() ? candidate : current;
+    }
+
+    private static List<String> segments(String pattern) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static final class Node {
+        private final String[] segments;
+        private final Node[] children;
+        private final Node wildcard;
+        private final RouteDescriptor route;
+
+        private Node(String[] segments, Node[] children, Node wildcard, RouteDescriptor route) {
+            this.segments = segments;
+            this.children = children;
+            this.wildcard = wildcard;
+            this.route = route;
+        }
+
+        private Node child(String path, int start, int length) {
+            // El fan-out por nivel es pequeño: una búsqueda lineal es más barata que un hash
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.length() == length && path.regionMatches(start, segment, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> children = new LinkedHashMap<>();
+        private RouteDescriptor route;
+
+        private Node build() {
+            List<String> segments = new ArrayList<>();
+            List<Node> nodes = new ArrayList<>();
+            Node wildcard = null;
+            for (Map.Entry<String, Builder> entry : children.entrySet()) {
+                if (WILDCARD.equals(entry.getKey())) {
+                    wildcard = entry.getValue().build();
+                } else {
+                    segments.add(entry.getKey());
+                    nodes.add(entry.getValue().build());
+                }
+            }
+            return new Node(segments.toArray(new String[0]), nodes.toArray(new Node[0]), wildcard, route);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets de una regla de {@link RateLimiter}, uno por valor de la clave.
+ * <p>
+ * Cada bucket es un único {@link AtomicLong} con el instante teórico en que
+ * volvería a estar lleno (algoritmo GCRA, equivalente a un token bucket): un token
+ * cuesta {@code period / limit} nanosegundos y el bucket admite tomar prestados
+ * hasta {@code burst} tokens. El rellenado es perezoso —se calcula al consumir— y
+ * se consume con un CAS, sin bloqueos. Los buckets se reparten entre varias
+ * particiones para que la contención de la tabla no sea global.
+ * <p>
+ * Un bucket lleno es indistinguible de uno que no existe, así que {@link #sweep()}
+ * los elimina; si una partición se llena aun así, las claves nuevas comparten un
+ * bucket de desbordamiento y la memoria queda acotada.
+ */
+public class TokenBuckets {
+
+    @Getter
+    private final String id;
+    @Getter
+    private final int limit;
+    @Getter
+    private final int burst;
+    private final long periodSeconds;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeysPerShard;
+    private final ConcurrentHashMap<String, AtomicLong>[] shards;
+    private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public TokenBuckets(String id, GatewayProperties.RateLimitRule rule, int shardCount, int maxKeys) {
+        if (rule.getLimit() <= 0 || rule.getPeriod() == null || rule.getPeriod().isZero()) {
+            throw new IllegalStateException("Rate limit " + id + " needs a positive limit and period");
+        }
+        this.id = id;
+        this.limit = rule.getLimit();
+        this.burst = rule.getBurst() != null ? Math.max(1, rule.getBurst()) : rule.getLimit();
+        this.periodSeconds = Math.max(1, rule.getPeriod().toSeconds());
+        this.intervalNanos = Math.max(1, rule.getPeriod().toNanos() / rule.getLimit());
+        this.toleranceNanos = intervalNanos * burst;
+        int count = Math.max(1, shardCount);
+        this.maxKeysPerShard = Math.max(1, maxKeys / count);
+        this.shards = new ConcurrentHashMap[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Consume un token del bucket de {@code key}.
+     */
+    public Decision tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = bucket(key, now);
+        while (true) {
+            long full = bucket.get();
+            // Un bucket que se llenó en el pasado parte de ahora
+            long base = full - now > 0 ? full : now;
+            long next = base + intervalNanos;
+            long debt = next - now;
+            if (debt > toleranceNanos) {
+                rejected.increment();
+                return new Decision(false, this, 0, full - now, debt - toleranceNanos);
+            }
+            if (bucket.compareAndSet(full, next)) {
+                allowed.increment();
+                return new Decision(true, this, (int) ((toleranceNanos - debt) / intervalNanos), debt, 0);
+            }
+        }
+    }
+
+    /**
+     * Elimina los buckets que ya se han rellenado por completo.
+     */
+    public void sweep() {
+        long now = System.nanoTime();
+        for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            sweep(shard, now);
+        }
+    }
+
+    public String policy() {
+        return limit + ";w=" + periodSeconds + (burst != limit ? ";burst=" + burst : "");
+    }
+
+    public Map<String, Object> snapshot() {
+        int keys = 0;
+        for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            keys += shard.size();
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("policy", policy());
+        snapshot.put("keys", keys);
+        snapshot.put("allowed", allowed.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("overflowed", overflowed.sum());
+        snapshot.put("evicted", evicted.sum());
+        return snapshot;
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        int hash = key.hashCode();
+        ConcurrentHashMap<String, AtomicLong> shard = shards[((hash ^ (hash >>> 16)) & 0x7fffffff) % shards.length];
+        AtomicLong bucket = shard.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (shard.size() >= maxKeysPerShard) {
+            sweep(shard, now);
+            if (shard.size() >= maxKeysPerShard) {
+                overflowed.increment();
+                return overflow;
+            }
+        }
+        return shard.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    private void sweep(ConcurrentHashMap<String, AtomicLong> shard, long now) {
+        // Si otro hilo consume justo mientras se elimina su bucket, pierde como mucho ese token
+        shard.values().removeIf(bucket -> {
+            boolean full = bucket.get() - now <= 0;
+            if (full) {
+                evicted.increment();
+            }
+            return full;
+        });
+    }
+
+    /**
+     * Resultado de consumir un token, con lo necesario para los headers RateLimit-*.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Decision {
+        private final boolean allowed;
+        private final TokenBuckets buckets;
+        private final int remaining;
+        /** Tiempo hasta que el bucket vuelva a estar lleno. */
+        private final long resetNanos;
+        /** Tiempo hasta que haya un token disponible (0 si se ha admitido). */
+        private final long retryAfterNanos;
+    }
+}
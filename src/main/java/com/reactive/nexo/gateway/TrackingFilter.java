@@ -0,0 +1,213 @@
+package com.reactive.nexo.gateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactive.nexo.config.GatewayProperties;
+import com.reactive.nexo.model.Tracking;
+import com.reactive.nexo.service.TrackingRollups;
+import com.reactive.nexo.service.TrackingWriter;
+import com.reactive.nexo.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deja en la tabla tracking una fila por petición proxy al terminar la respuesta:
+ * empleado, ruta, método, status, latencia y, si {@code max-payload-bytes} es mayor
+ * que 0, los primeros bytes de los bodies de texto.
+ * <p>
+ * Los bodies se copian con {@link BodyCapture} mientras pasan en streaming, sin
+ * agregarlos, y la fila sale por {@link TrackingWriter}, así que la petición nunca
+ * espera a la base de datos. El muestreo se decide al empezar: las peticiones no
+ * muestreadas no se decoran y solo se registran si acaban en 5xx. Todas, muestreadas
+ * o no, se suman a los agregados de {@link TrackingRollups}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@Slf4j
+public class TrackingFilter implements WebFilter {
+
+    private static final String ACTION_PREFIX = "endpoint called: ";
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final Map<String, Double> routeSampleRates;
+    private final int maxPayloadBytes;
+    private final RouteRegistry routeRegistry;
+    private final TrackingWriter trackingWriter;
+    private final TrackingRollups trackingRollups;
+    private final AccessLog accessLog;
+    private final ObjectMapper objectMapper;
+
+    public TrackingFilter(GatewayProperties properties, RouteRegistry routeRegistry, TrackingWriter trackingWriter,
+                          TrackingRollups trackingRollups, AccessLog accessLog, ObjectMapper objectMapper) {
+        GatewayProperties.Tracking config = properties.getTracking();
+        this.enabled = config.isEnabled();
+        this.sampleRate = config.getSampleRate();
+        this.routeSampleRates = Map.copyOf(config.getRoutes());
+        this.maxPayloadBytes = Math.max(0, config.getMaxPayloadBytes());
+        this.routeRegistry = routeRegistry;
+        this.trackingWriter = trackingWriter;
+        this.trackingRollups = trackingRollups;
+        this.accessLog = accessLog;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        RouteDescriptor route = routeRegistry.resolve(exchange.getRequest().getPath().value());
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        if (!sampled(route)) {
+            return chain.filter(exchange)
+                .doFinally(signal -> finish(exchange, route, start, false, null, null, signal));
+        }
+        if (maxPayloadBytes == 0) {
+            return chain.filter(exchange)
+                .doFinally(signal -> finish(exchange, route, start, true, null, null, signal));
+        }
+
+        BodyCapture requestCapture = new BodyCapture(maxPayloadBytes);
+        BodyCapture responseCapture = new BodyCapture(maxPayloadBytes);
+        ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return requestCapture.tee(super.getBody());
+            }
+        };
+        ServerHttpResponse response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return super.writeWith(responseCapture.tee(Flux.from(body)));
+            }
+        };
+        return chain.filter(exchange.mutate().request(request).response(response).build())
+            .doFinally(signal -> finish(exchange, route, start, true, requestCapture, responseCapture, signal));
+    }
+
+    private boolean sampled(RouteDescriptor route) {
+        double rate = routeSampleRates.getOrDefault(route.getId(), sampleRate);
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * Suma la petición a los agregados, muestreada o no, y escribe su fila si está
+     * muestreada o ha acabado en 5xx.
+     */
+    private void finish(ServerWebExchange exchange, RouteDescriptor route, long start, boolean sampled,
+                        BodyCapture requestCapture, BodyCapture responseCapture, SignalType signal) {
+        try {
+            ServerHttpRequest request = exchange.getRequest();
+            int status = status(exchange);
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Long employeeId = employeeId(exchange);
+            String action = ACTION_PREFIX + route.getPattern();
+            trackingRollups.record(action, employeeId, request.getMethod().name() + " " + route.getPattern(),
+                status >= 500, latencyMillis);
+            if (sampled || status >= 500) {
+                record(exchange, route, action, employeeId, status, latencyMillis, requestCapture, responseCapture, signal);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            // El tracking nunca debe afectar a la respuesta
+            log.debug("Could not record tracking for {}: {}", route.getId(), e.getMessage());
+        }
+    }
+
+    private void record(ServerWebExchange exchange, RouteDescriptor route, String action, Long employeeId,
+                        int status, long latencyMillis, BodyCapture requestCapture, BodyCapture responseCapture,
+                        SignalType signal) throws JsonProcessingException {
+        ServerHttpRequest request = exchange.getRequest();
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("route", route.getId());
+        data.put("method", request.getMethod().name());
+        data.put("path", accessLog.redact(request.getPath().value(), request.getURI().getRawQuery()));
+        payload(data, requestCapture, request.getHeaders());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", status);
+        result.put("latency_ms", latencyMillis);
+        if (signal == SignalType.CANCEL) {
+            result.put("cancelled", true);
+        }
+        payload(result, responseCapture, exchange.getResponse().getHeaders());
+
+        trackingWriter.offer(new Tracking(employeeId, action,
+            objectMapper.writeValueAsString(data), objectMapper.writeValueAsString(result)));
+    }
+
+    /**
+     * Añade tamaño y, si es texto, los bytes capturados del body.
+     */
+    private static void payload(Map<String, Object> target, BodyCapture capture, HttpHeaders headers) {
+        if (capture == null || capture.getTotalBytes() == 0) {
+            return;
+        }
+        target.put("bytes", capture.getTotalBytes());
+        if (isText(headers.getContentType())) {
+            target.put("body", new String(capture.toByteArray(), StandardCharsets.UTF_8));
+            if (capture.isTruncated()) {
+                target.put("truncated", true);
+            }
+        }
+    }
+
+    private static boolean isText(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String subtype = contentType.getSubtype();
+        return "text".equals(contentType.getType()) || subtype.equals("json") || subtype.endsWith("+json")
+            || subtype.equals("xml") || subtype.endsWith("+xml") || subtype.equals("x-www-form-urlencoded");
+    }
+
+    private static int status(ServerWebExchange exchange) {
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        return statusCode != null ? statusCode.value() : 200;
+    }
+
+    /**
+     * Empleado de los claims que JwtAuthenticationFilter dejó en el exchange; la
+     * respuesta ya ha terminado, así que no se vuelve a verificar el token.
+     */
+    private static Long employeeId(ServerWebExchange exchange) {
+        Object claims = exchange.getAttribute(JwtUtil.CLAIMS_ATTRIBUTE);
+        Object employeeId = claims instanceof Claims ? ((Claims) claims).get("employee_id") : null;
+        if (employeeId == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(employeeId.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
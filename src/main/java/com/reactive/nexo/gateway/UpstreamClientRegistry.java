@@ -0,0 +1,116 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Un {@link WebClient} por servicio upstream, cada uno con su propio
+ * {@link ConnectionProvider} con nombre. Todo el gateway (proxy, EmployeeClient,
+ * SessionController) comparte estos clientes en lugar de crear los suyos, de modo
+ * que las conexiones se reutilizan entre peticiones. Cada cliente reparte las
+ * peticiones entre las instancias del servicio con su {@link LoadBalancer}.
+ */
+@Component
+@Slf4j
+public class UpstreamClientRegistry implements DisposableBean {
+
+    private final Map<String, WebClient> clients = new LinkedHashMap<>();
+    private final Map<String, WebClient> probeClients = new LinkedHashMap<>();
+    private final Map<String, LoadBalancer> loadBalancers = new LinkedHashMap<>();
+    private final Map<String, ConnectionProvider> providers = new LinkedHashMap<>();
+
+    public UpstreamClientRegistry(GatewayProperties properties, WebClient.Builder webClientBuilder) {
+        properties.getServices().forEach((name, service) -> {
+            List<String> urls = service.instanceUrls();
+            if (urls.isEmpty()) {
+                throw new IllegalStateException("Gateway service " + name + " has no url or instances");
+            }
+            ConnectionProvider provider = connectionProvider(name, service.getPool());
+            providers.put(name, provider);
+            LoadBalancer loadBalancer = new LoadBalancer(name, service.getLoadBalancer(), urls);
+            loadBalancers.put(name, loadBalancer);
+            ReactorClientHttpConnector connector = new ReactorClientHttpConnector(httpClient(provider, service.getPool()));
+            // La baseUrl solo fija el path; el filtro del balanceador sustituye el host por la instancia elegida
+            clients.put(name, webClientBuilder.clone()
+                .baseUrl(urls.get(0))
+                .clientConnector(connector)
+                .filter(loadBalancer.filter())
+                .build());
+            probeClients.put(name, webClientBuilder.clone()
+                .clientConnector(connector)
+                .build());
+            log.info("Upstream {} -> {} ({}, pool: max {} connections, protocols {})",
+                name, urls, service.getLoadBalancer(), service.getPool().getMaxConnections(), service.getPool().getProtocols());
+        });
+    }
+
+    /**
+     * Cliente compartido del servicio; falla si el servicio no está configurado.
+     */
+    public WebClient client(String serviceName) {
+        WebClient client = clients.get(serviceName);
+        if (client == null) {
+            throw new IllegalStateException("Unknown gateway service: " + serviceName);
+        }
+        return client;
+    }
+
+    public Map<String, WebClient> getClients() {
+        return Collections.unmodifiableMap(clients);
+    }
+
+    /**
+     * Cliente sin balanceo para sondear una instancia concreta por URL absoluta.
+     */
+    WebClient probeClient(String serviceName) {
+        return probeClients.get(serviceName);
+    }
+
+    public Map<String, LoadBalancer> getLoadBalancers() {
+        return Collections.unmodifiableMap(loadBalancers);
+    }
+
+    private static ConnectionProvider connectionProvider(String name, GatewayProperties.Pool pool) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("gateway-" + name)
+            .maxConnections(pool.getMaxConnections())
+            .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+            .maxIdleTime(pool.getMaxIdleTime())
+            .maxLifeTime(pool.getMaxLifeTime());
+        if (pool.getEvictInBackground() != null && !pool.getEvictInBackground().isZero()) {
+            builder.evictInBackground(pool.getEvictInBackground());
+        }
+        return builder.build();
+    }
+
+    private static HttpClient httpClient(ConnectionProvider provider, GatewayProperties.Pool pool) {
+        Duration connectTimeout = pool.getConnectTimeout();
+        HttpClient httpClient = HttpClient.create(provider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, pool.isKeepAlive())
+            .protocol(pool.getProtocols().toArray(new HttpProtocol[0]));
+        if (pool.getProtocols().contains(HttpProtocol.H2) || pool.getProtocols().contains(HttpProtocol.H2C)) {
+            httpClient = httpClient.http2Settings(settings -> settings.maxConcurrentStreams(pool.getMaxConcurrentStreams()));
+        }
+        return httpClient;
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,67 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.config.GatewayProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sondea periódicamente cada instancia de los servicios upstream y avisa al
+ * {@link LoadBalancer} cuando una instancia cambia de estado.
+ */
+@Component
+@Slf4j
+public class UpstreamHealthChecker {
+
+    private final GatewayProperties properties;
+    private final UpstreamClientRegistry clientRegistry;
+    private final Disposable.Composite probes = Disposables.composite();
+
+    public UpstreamHealthChecker(GatewayProperties properties, UpstreamClientRegistry clientRegistry) {
+        this.properties = properties;
+        this.clientRegistry = clientRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        clientRegistry.getLoadBalancers().forEach((name, loadBalancer) -> {
+            GatewayProperties.HealthCheck healthCheck = properties.getServices().get(name).getHealthCheck();
+            if (!healthCheck.isEnabled()) {
+                return;
+            }
+            WebClient probeClient = clientRegistry.probeClient(name);
+            probes.add(Flux.interval(healthCheck.getInterval(), healthCheck.getInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromArray(loadBalancer.getInstances())
+                    .flatMap(instance -> probe(probeClient, instance, healthCheck)
+                        .doOnNext(success -> {
+                            if (instance.onProbe(success, healthCheck.getUnhealthyThreshold(), healthCheck.getHealthyThreshold())) {
+                                loadBalancer.onHealthChanged(instance);
+                            }
+                        })))
+                .subscribe());
+            log.info("Health check for upstream {} every {} on {}", name, healthCheck.getInterval(), healthCheck.getPath());
+        });
+    }
+
+    private Mono<Boolean> probe(WebClient probeClient, UpstreamInstance instance, GatewayProperties.HealthCheck healthCheck) {
+        return probeClient.get()
+            .uri(instance.getUrl() + healthCheck.getPath())
+            .exchangeToMono(response -> response.releaseBody()
+                .thenReturn(!response.statusCode().is5xxServerError()))
+            .timeout(healthCheck.getTimeout())
+            .onErrorReturn(false);
+    }
+
+    @PreDestroy
+    public void stop() {
+        probes.dispose();
+    }
+}
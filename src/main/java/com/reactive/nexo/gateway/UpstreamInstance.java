@@ -0,0 +1,81 @@
+package com.reactive.nexo.gateway;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Una instancia de un servicio upstream con su estado de salud y las peticiones
+ * que tiene en curso.
+ */
+public class UpstreamInstance {
+
+    private final String url;
+    private final URI uri;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicInteger consecutiveSuccesses = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    public UpstreamInstance(String url) {
+        this.url = url;
+        this.uri = URI.create(url);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+        requests.increment();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Registra el resultado de un sondeo; devuelve true si cambió el estado de salud.
+     */
+    boolean onProbe(boolean success, int unhealthyThreshold, int healthyThreshold) {
+        if (success) {
+            consecutiveFailures.set(0);
+            if (!healthy && consecutiveSuccesses.incrementAndGet() >= healthyThreshold) {
+                healthy = true;
+                return true;
+            }
+        } else {
+            consecutiveSuccesses.set(0);
+            if (healthy && consecutiveFailures.incrementAndGet() >= unhealthyThreshold) {
+                healthy = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("url", url);
+        snapshot.put("healthy", healthy);
+        snapshot.put("outstanding", outstanding.get());
+        snapshot.put("requests", requests.sum());
+        return snapshot;
+    }
+}
@@ -0,0 +1,25 @@
+package com.reactive.nexo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Token revocado antes de su expiración, identificado por el SHA-256 del token.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("revoked_token")
+public class RevokedToken {
+
+    @Id
+    private String tokenDigest;
+    private String employeeId;
+    private LocalDateTime expiresAt;
+    private LocalDateTime revokedAt;
+}
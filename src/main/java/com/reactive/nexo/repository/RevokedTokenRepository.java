@@ -0,0 +1,30 @@
+package com.reactive.nexo.repository;
+
+import com.reactive.nexo.model.RevokedToken;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+public interface RevokedTokenRepository extends ReactiveCrudRepository<RevokedToken, String> {
+
+    // La clave la pone la aplicación, así que save() haría UPDATE: se inserta explícitamente
+    @Modifying
+    @Query("INSERT INTO revoked_token (token_digest, employee_id, expires_at) VALUES (:digest, :employeeId, :expiresAt)")
+    Mono<Integer> insert(@Param("digest") String digest, @Param("employeeId") String employeeId,
+                         @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query("SELECT * FROM revoked_token WHERE token_digest = :digest AND expires_at > :now")
+    Mono<RevokedToken> findActive(@Param("digest") String digest, @Param("now") LocalDateTime now);
+
+    @Query("SELECT * FROM revoked_token WHERE expires_at > :now")
+    Flux<RevokedToken> findAllActive(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM revoked_token WHERE expires_at <= :now")
+    Mono<Integer> deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,154 @@
+package com.reactive.nexo.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.reactive.nexo.dto.TrackingCursor;
+import com.reactive.nexo.model.Tracking;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas de tracking paginadas por keyset sobre (created_at, id), de la más
+ * reciente a la más antigua. El orden y el límite van en el SQL, así que nunca se
+ * ordena ni se agrega la tabla en el gateway.
+ * <p>
+ * {@link #search} compila un {@link TrackingSearch} a una única sentencia
+ * parametrizada. El texto SQL depende solo de la forma de la consulta (columnas,
+ * operadores y número de parámetros), así que se genera una vez por forma y se
+ * reutiliza; el driver puede así reutilizar también la sentencia preparada.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TrackingQueries {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private static final int MAX_TEMPLATES = 512;
+
+    private final R2dbcEntityTemplate template;
+    private final DatabaseClient databaseClient;
+    private final Cache<String, String> templates = Caffeine.newBuilder()
+            .maximumSize(MAX_TEMPLATES)
+            .recordStats()
+            .build();
+
+    /**
+     * Filas que cumplen {@code filter} posteriores a {@code after} en el orden de
+     * paginación.
+     *
+     * @param filter criterio adicional, o {@link Criteria#empty()}
+     * @param after  última fila de la página anterior, o null para empezar
+     * @param limit  filas como mucho; 0 o menos = sin límite (streaming)
+     */
+    public Flux<Tracking> find(Criteria filter, TrackingCursor after, int limit) {
+        Criteria criteria = filter;
+        if (after != null) {
+            Criteria keyset = Criteria.where("createdAt").lessThan(after.getCreatedAt())
+                    .or(Criteria.where("createdAt").is(after.getCreatedAt()).and("id").lessThan(after.getId()));
+            criteria = criteria.isEmpty() ? keyset : criteria.and(keyset);
+        }
+        Query query = Query.query(criteria).sort(NEWEST_FIRST);
+        if (limit > 0) {
+            query = query.limit(limit);
+        }
+        return template.select(Tracking.class).matching(query).all();
+    }
+
+    /**
+     * Filas que cumplen todas las condiciones de {@code search}, con solo sus
+     * columnas, posteriores a {@code after}. Cada fila es un mapa columna → valor.
+     *
+     * @param limit filas como mucho; 0 o menos = sin límite (streaming)
+     */
+    public Flux<Map<String, Object>> search(TrackingSearch search, TrackingCursor after, int limit) {
+        String shape = search.shape() + (after != null ? "|after" : "") + (limit > 0 ? "|limit" : "");
+        String sql = templates.get(shape, key -> compile(search, after != null, limit > 0));
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        int index = 0;
+        for (TrackingSearch.Condition condition : search.getConditions()) {
+            for (Object value : condition.getValues()) {
+                spec = spec.bind("p" + index++, value);
+            }
+        }
+        if (after != null) {
+            spec = spec.bind("kc", after.getCreatedAt()).bind("ki", after.getId());
+        }
+        if (limit > 0) {
+            spec = spec.bind("limit", limit);
+        }
+        List<String> fields = search.getFields();
+        return spec.map((row, metadata) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                String field = fields.get(i);
+                values.put(field, row.get(i, TrackingSearch.COLUMNS.get(field)));
+            }
+            return values;
+        }).all();
+    }
+
+    public Map<String, Object> snapshot() {
+        CacheStats stats = templates.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("templates", templates.estimatedSize());
+        snapshot.put("maxTemplates", MAX_TEMPLATES);
+        snapshot.put("hits", stats.hitCount());
+        snapshot.put("misses", stats.missCount());
+        snapshot.put("hitRate", stats.hitRate());
+        return snapshot;
+    }
+
+    private static String compile(TrackingSearch search, boolean after, boolean limit) {
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(String.join(", ", search.getFields()))
+                .append(" FROM tracking");
+        String glue = " WHERE ";
+        int index = 0;
+        for (TrackingSearch.Condition condition : search.getConditions()) {
+            sql.append(glue).append(condition.getColumn());
+            glue = " AND ";
+            switch (condition.getOperator()) {
+                case EQ: sql.append(" = :p").append(index++); break;
+                case LT: sql.append(" < :p").append(index++); break;
+                case LTE: sql.append(" <= :p").append(index++); break;
+                case GT: sql.append(" > :p").append(index++); break;
+                case GTE: sql.append(" >= :p").append(index++); break;
+                case BETWEEN:
+                    sql.append(" BETWEEN :p").append(index++).append(" AND :p").append(index++);
+                    break;
+                case IN:
+                    sql.append(" IN (");
+                    for (int i = 0; i < condition.getValues().size(); i++) {
+                        sql.append(i == 0 ? ":p" : ", :p").append(index++);
+                    }
+                    sql.append(')');
+                    break;
+                case PREFIX:
+                    sql.append(" LIKE :p").append(index++).append(" ESCAPE '\\'");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Operador no soportado: " + condition.getOperator());
+            }
+        }
+        if (after) {
+            sql.append(glue).append("(created_at < :kc OR (created_at = :kc AND id < :ki))");
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC");
+        if (limit) {
+            sql.append(" LIMIT :limit");
+        }
+        return sql.toString();
+    }
+}
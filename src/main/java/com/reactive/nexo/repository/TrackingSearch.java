@@ -0,0 +1,229 @@
+package com.reactive.nexo.repository;
+
+import lombok.Getter;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filtro de varias condiciones sobre tracking, unidas con AND, y columnas a devolver.
+ * <p>
+ * Se construye a partir de los parámetros de la petición: cada parámetro con nombre
+ * de columna es una condición {@code operador:valor} (sin operador, igualdad):
+ * <pre>
+ *   employee_id=in:1,2,3
+ *   action=prefix:auth:
+ *   created_at=between:2024-12-01,2024-12-02T12:00:00
+ *   created_at=gte:2024-12-01&amp;created_at=lt:2024-12-08
+ *   since=24h
+ *   fields=action,result
+ * </pre>
+ * Las condiciones se compilan en {@link TrackingQueries} a una única sentencia SQL
+ * parametrizada, cuya plantilla se reutiliza entre consultas con la misma forma.
+ */
+@Getter
+public class TrackingSearch {
+
+    public enum Operator { EQ, LT, LTE, GT, GTE, BETWEEN, IN, PREFIX }
+
+    /** Columnas consultables y su tipo. */
+    static final Map<String, Class<?>> COLUMNS;
+
+    static {
+        Map<String, Class<?>> columns = new LinkedHashMap<>();
+        columns.put("id", Long.class);
+        columns.put("created_at", LocalDateTime.class);
+        columns.put("employee_id", Long.class);
+        columns.put("action", String.class);
+        columns.put("data", String.class);
+        columns.put("result", String.class);
+        COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
+    /** id y created_at van siempre: forman el cursor de paginación. */
+    private static final List<String> KEY_COLUMNS = List.of("id", "created_at");
+    private static final Set<String> RESERVED = Set.of("fields", "since", "limit", "cursor");
+    private static final int MAX_IN_VALUES = 100;
+
+    private final List<Condition> conditions;
+    private final List<String> fields;
+
+    private TrackingSearch(List<Condition> conditions, List<String> fields) {
+        this.conditions = conditions;
+        this.fields = fields;
+    }
+
+    /**
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     */
+    public static TrackingSearch parse(Map<String, List<String>> params, LocalDateTime now) {
+        List<Condition> conditions = new ArrayList<>();
+        List<String> fields = new ArrayList<>(KEY_COLUMNS);
+
+        params.forEach((name, values) -> {
+            String column = name.toLowerCase();
+            if (RESERVED.contains(column)) {
+                return;
+            }
+            if (!COLUMNS.containsKey(column)) {
+                throw new IllegalArgumentException("Atributo no válido: " + name
+                    + ". Atributos soportados: " + String.join(", ", COLUMNS.keySet()));
+            }
+            for (String value : values) {
+                conditions.add(condition(column, value));
+            }
+        });
+
+        String since = first(params, "since");
+        if (since != null) {
+            try {
+                Duration window = DurationStyle.detectAndParse(since);
+                conditions.add(new Condition("created_at", Operator.GTE, List.of(now.minus(window))));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Valor de since no válido. Use por ejemplo 24h, 30m o PT24H");
+            }
+        }
+
+        String requested = first(params, "fields");
+        if (requested != null && !requested.isBlank()) {
+            for (String field : requested.split(",")) {
+                String column = field.trim().toLowerCase();
+                if (!COLUMNS.containsKey(column)) {
+                    throw new IllegalArgumentException("Campo no válido en fields: " + field);
+                }
+                if (!fields.contains(column)) {
+                    fields.add(column);
+                }
+            }
+        } else {
+            fields = new ArrayList<>(COLUMNS.keySet());
+        }
+        return new TrackingSearch(List.copyOf(conditions), List.copyOf(fields));
+    }
+
+    /**
+     * Clave de la forma de la consulta: columnas, operadores y número de parámetros,
+     * sin los valores.
+     */
+    String shape() {
+        StringBuilder shape = new StringBuilder(String.join(",", fields)).append('|');
+        for (Condition condition : conditions) {
+            shape.append(condition.column).append(':').append(condition.operator)
+                .append(':').append(condition.values.size()).append(';');
+        }
+        return shape.toString();
+    }
+
+    private static Condition condition(String column, String raw) {
+        Operator operator = Operator.EQ;
+        String value = raw;
+        int colon = raw.indexOf(':');
+        if (colon > 0) {
+            try {
+                operator = Operator.valueOf(raw.substring(0, colon).toUpperCase());
+                value = raw.substring(colon + 1);
+            } catch (IllegalArgumentException e) {
+                // No es un operador: el valor contiene ':' y es una igualdad
+            }
+        }
+        Class<?> type = COLUMNS.get(column);
+        switch (operator) {
+            case BETWEEN: {
+                String[] bounds = value.split(",", -1);
+                if (bounds.length != 2) {
+                    throw new IllegalArgumentException("between necesita dos valores separados por coma en " + column);
+                }
+                return new Condition(column, operator, List.of(convert(column, type, bounds[0]), convert(column, type, bounds[1])));
+            }
+            case IN: {
+                String[] items = value.split(",");
+                if (items.length == 0 || items.length > MAX_IN_VALUES) {
+                    throw new IllegalArgumentException("in admite entre 1 y " + MAX_IN_VALUES + " valores en " + column);
+                }
+                List<Object> converted = new ArrayList<>(items.length);
+                for (String item : items) {
+                    converted.add(convert(column, type, item));
+                }
+                return new Condition(column, operator, padded(converted));
+            }
+            case PREFIX:
+                if (!column.equals("action")) {
+                    throw new IllegalArgumentException("prefix solo se admite en action");
+                }
+                return new Condition(column, operator, List.of(escapeLike(value) + "%"));
+            default:
+                return new Condition(column, operator, List.of(convert(column, type, value)));
+        }
+    }
+
+    /**
+     * Rellena la lista IN hasta la siguiente potencia de dos repitiendo el último
+     * valor, para que listas de tamaño parecido compartan plantilla.
+     */
+    private static List<Object> padded(List<Object> values) {
+        int size = Integer.highestOneBit(values.size());
+        if (size < values.size()) {
+            size <<= 1;
+        }
+        List<Object> padded = new ArrayList<>(values);
+        while (padded.size() < size) {
+            padded.add(values.get(values.size() - 1));
+        }
+        return List.copyOf(padded);
+    }
+
+    private static Object convert(String column, Class<?> type, String value) {
+        String trimmed = value.trim();
+        if (type == Long.class) {
+            try {
+                return Long.parseLong(trimmed);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("El valor para '" + column + "' debe ser un número válido");
+            }
+        }
+        if (type == LocalDateTime.class) {
+            try {
+                return trimmed.length() == 10 ? LocalDateTime.parse(trimmed + "T00:00:00") : LocalDateTime.parse(trimmed);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Formato de fecha no válido para '" + column + "'. Use: 2023-12-01T10:30:00 o 2023-12-01");
+            }
+        }
+        return value;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String first(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    @Getter
+    public static class Condition {
+        private final String column;
+        private final Operator operator;
+        private final List<Object> values;
+
+        Condition(String column, Operator operator, List<Object> values) {
+            this.column = column;
+            this.operator = operator;
+            this.values = values;
+        }
+
+        @Override
+        public String toString() {
+            return column + " " + operator + " " + Arrays.toString(values.toArray());
+        }
+    }
+}
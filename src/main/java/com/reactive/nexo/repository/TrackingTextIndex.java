@@ -0,0 +1,268 @@
+package com.reactive.nexo.repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice invertido en memoria de las palabras de data y result, para buscar en el
+ * tracking cuando la base de datos no es PostgreSQL (perfil h2) y no hay tsvector.
+ * <p>
+ * Cada {@code refresh-interval} se indexan las filas con id mayor que la última
+ * vista, así que las nuevas aparecen en la búsqueda casi en el acto sin tocar la
+ * escritura. Por cada palabra se guardan los ids ordenados con su número (el size()
+ * de ConcurrentSkipListSet recorre la lista), y la búsqueda recorre la condición
+ * con menos ids de la más reciente a la más antigua comprobando el resto. Con
+ * más de {@code max-documents} filas se olvidan las más antiguas; las borradas por
+ * la retención desaparecen al leer las filas candidatas.
+ */
+@Repository
+@Slf4j
+public class TrackingTextIndex {
+
+    private static final String NEW_ROWS = "SELECT id, data, result FROM tracking WHERE id > :last ORDER BY id LIMIT :limit";
+
+    private final DatabaseClient databaseClient;
+    private final int maxDocuments;
+    private final int batchSize;
+    private final Duration refreshInterval;
+
+    private final ConcurrentSkipListMap<Long, String[]> documents = new ConcurrentSkipListMap<>();
+    private final AtomicInteger documentCount = new AtomicInteger();
+    private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+    private volatile long lastId;
+    private volatile boolean active;
+    private Disposable refresher;
+
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+
+    public TrackingTextIndex(DatabaseClient databaseClient,
+                             @Value("${tracking.search.index.max-documents:200000}") int maxDocuments,
+                             @Value("${tracking.search.index.batch-size:1000}") int batchSize,
+                             @Value("${tracking.search.index.refresh-interval:2s}") Duration refreshInterval) {
+        this.databaseClient = databaseClient;
+        this.maxDocuments = Math.max(1, maxDocuments);
+        this.batchSize = Math.max(1, batchSize);
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (databaseClient.getConnectionFactory().getMetadata().getName().contains("PostgreSQL")) {
+            // PostgreSQL busca con su propio índice GIN
+            return;
+        }
+        active = true;
+        refresher = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh().onErrorResume(e -> {
+                    log.warn("Cannot refresh tracking text index: {}", e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+        log.info("Tracking text index in memory, up to {} rows", maxDocuments);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Ids de las filas que cumplen todas las {@code clauses} (alguna de sus palabras)
+     * y ningún grupo de {@code excluded} (todas sus palabras), de la más reciente a
+     * la más antigua, anteriores a {@code beforeId} (null para empezar), como mucho
+     * {@code limit}.
+     */
+    public List<Long> candidates(List<List<String>> clauses, List<List<String>> excluded, Long beforeId, int limit) {
+        searches.increment();
+        List<List<Posting>> required = new ArrayList<>(clauses.size());
+        for (List<String> clause : clauses) {
+            List<Posting> alternatives = new ArrayList<>(clause.size());
+            for (String term : clause) {
+                Posting posting = postings.get(term);
+                if (posting != null) {
+                    alternatives.add(posting);
+                }
+            }
+            if (alternatives.isEmpty()) {
+                return List.of();
+            }
+            required.add(alternatives);
+        }
+        if (required.isEmpty()) {
+            return List.of();
+        }
+        List<List<Posting>> rejected = new ArrayList<>(excluded.size());
+        for (List<String> group : excluded) {
+            List<Posting> all = new ArrayList<>(group.size());
+            for (String term : group) {
+                Posting posting = postings.get(term);
+                if (posting == null) {
+                    // Alguna palabra no está en ninguna fila: el grupo no descarta nada
+                    all = null;
+                    break;
+                }
+                all.add(posting);
+            }
+            if (all != null) {
+                rejected.add(all);
+            }
+        }
+        required.sort(Comparator.comparingLong(TrackingTextIndex::size));
+        List<Posting> driving = required.get(0);
+        List<Long> result = new ArrayList<>(Math.min(limit, 64));
+        long cursor = beforeId != null ? beforeId : Long.MAX_VALUE;
+        while (result.size() < limit) {
+            // Siguiente id de la unión de la condición más corta
+            Long id = null;
+            for (Posting posting : driving) {
+                Long candidate = posting.ids.lower(cursor);
+                if (candidate != null && (id == null || candidate > id)) {
+                    id = candidate;
+                }
+            }
+            if (id == null) {
+                break;
+            }
+            cursor = id;
+            if (matches(id, required, rejected)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("active", active);
+        snapshot.put("documents", documentCount.get());
+        snapshot.put("maxDocuments", maxDocuments);
+        snapshot.put("terms", postings.size());
+        snapshot.put("lastId", lastId);
+        snapshot.put("indexed", indexed.sum());
+        snapshot.put("evicted", evicted.sum());
+        snapshot.put("searches", searches.sum());
+        return snapshot;
+    }
+
+    /**
+     * Indexa las filas nuevas por lotes hasta alcanzar la última.
+     */
+    private Mono<Void> refresh() {
+        return databaseClient.sql(NEW_ROWS)
+                .bind("last", lastId)
+                .bind("limit", batchSize)
+                .map((row, metadata) -> {
+                    add(row.get(0, Long.class), row.get(1, String.class), row.get(2, String.class));
+                    return 1;
+                })
+                .all()
+                .count()
+                .flatMap(rows -> rows >= batchSize ? refresh() : Mono.empty());
+    }
+
+    private void add(long id, String data, String result) {
+        Set<String> terms = new LinkedHashSet<>(TrackingTextQuery.tokenize(data));
+        terms.addAll(TrackingTextQuery.tokenize(result));
+        String[] documentTerms = terms.toArray(new String[0]);
+        if (documents.put(id, documentTerms) == null) {
+            documentCount.incrementAndGet();
+        }
+        for (String term : documentTerms) {
+            Posting posting = postings.computeIfAbsent(term, key -> new Posting());
+            if (posting.ids.add(id)) {
+                posting.size.incrementAndGet();
+            }
+        }
+        lastId = Math.max(lastId, id);
+        indexed.increment();
+        while (documentCount.get() > maxDocuments) {
+            Map.Entry<Long, String[]> oldest = documents.pollFirstEntry();
+            if (oldest == null) {
+                break;
+            }
+            documentCount.decrementAndGet();
+            for (String term : oldest.getValue()) {
+                Posting posting = postings.get(term);
+                if (posting != null && posting.ids.remove(oldest.getKey())
+                        && posting.size.decrementAndGet() == 0) {
+                    postings.remove(term, posting);
+                }
+            }
+            evicted.increment();
+        }
+    }
+
+    private static boolean matches(long id, List<List<Posting>> required, List<List<Posting>> rejected) {
+        for (int i = 1; i < required.size(); i++) {
+            boolean any = false;
+            for (Posting posting : required.get(i)) {
+                if (posting.ids.contains(id)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) {
+                return false;
+            }
+        }
+        for (List<Posting> group : rejected) {
+            boolean all = true;
+            for (Posting posting : group) {
+                if (!posting.ids.contains(id)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long size(List<Posting> alternatives) {
+        long size = 0;
+        for (Posting posting : alternatives) {
+            size += posting.size.get();
+        }
+        return size;
+    }
+
+    /** Ids de las filas con una palabra y su número. */
+    private static final class Posting {
+        private final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
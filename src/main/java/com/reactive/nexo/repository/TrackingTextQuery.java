@@ -0,0 +1,209 @@
+package com.reactive.nexo.repository;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Búsqueda de texto sobre data y result: palabras clave y condiciones
+ * {@code campo:valor} sobre los JSON, por ejemplo {@code employeeId:1 success} o
+ * {@code status:"not found"}. Todas las partes deben cumplirse.
+ * <p>
+ * Las palabras clave admiten la sintaxis de websearch_to_tsquery: frases entre
+ * comillas, {@code or} y {@code -palabra}. En PostgreSQL se pasan tal cual y cada
+ * campo es una frase "campo valor" en el tsvector. El índice en memoria de otras
+ * bases de datos evalúa las mismas condiciones con {@link #clauses()} y
+ * {@link #excluded()}, tratando cada frase como palabras que deben aparecer todas,
+ * y comprueba los campos sobre el JSON.
+ */
+@Getter
+public class TrackingTextQuery {
+
+    private static final Pattern FIELD = Pattern.compile("([\\p{L}\\p{N}_.-]+):(?:\"([^\"]*)\"|(\\S+))");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /** Palabra o frase entre comillas, negada si empieza por '-'. */
+    private static final Pattern KEYWORD = Pattern.compile("(-?)(?:\"([^\"]*)\"?|(\\S+))");
+    private static final int MAX_LENGTH = 500;
+
+    /** Texto libre sin las condiciones de campo; puede estar vacío. */
+    private final String keywords;
+    private final List<Field> fields;
+    @Getter(AccessLevel.NONE)
+    private final List<List<String>> clauses = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final List<List<String>> excluded = new ArrayList<>();
+    /** Hay un {@code or} con una frase a algún lado, que el índice en memoria no evalúa. */
+    @Getter(AccessLevel.NONE)
+    private boolean phraseAlternative;
+
+    private TrackingTextQuery(String keywords, List<Field> fields) {
+        this.keywords = keywords;
+        this.fields = fields;
+        parseKeywords();
+        for (Field field : fields) {
+            for (String word : tokenize(field.name + " " + field.value)) {
+                clauses.add(List.of(word));
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException si la búsqueda está vacía o es demasiado larga
+     */
+    public static TrackingTextQuery parse(String q) {
+        if (q == null || q.isBlank()) {
+            throw new IllegalArgumentException("El parámetro q es obligatorio");
+        }
+        if (q.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("La búsqueda no puede superar " + MAX_LENGTH + " caracteres");
+        }
+        List<Field> fields = new ArrayList<>();
+        Matcher matcher = FIELD.matcher(q);
+        StringBuilder keywords = new StringBuilder();
+        while (matcher.find()) {
+            String value = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            fields.add(new Field(matcher.group(1), value));
+            matcher.appendReplacement(keywords, " ");
+        }
+        matcher.appendTail(keywords);
+        TrackingTextQuery query = new TrackingTextQuery(keywords.toString().trim(), List.copyOf(fields));
+        if (query.terms().isEmpty()) {
+            throw new IllegalArgumentException("La búsqueda no contiene ninguna palabra");
+        }
+        return query;
+    }
+
+    /**
+     * Palabras buscadas, normalizadas como las indexa {@link #tokenize(String)}:
+     * palabras clave no negadas y claves y valores de los campos.
+     */
+    public List<String> terms() {
+        Set<String> terms = new LinkedHashSet<>();
+        for (List<String> clause : clauses) {
+            terms.addAll(clause);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Condiciones que deben cumplirse todas; cada una se cumple si aparece
+     * cualquiera de sus palabras ({@code or}).
+     *
+     * @throws IllegalArgumentException si hay un {@code or} entre frases
+     */
+    public List<List<String>> clauses() {
+        if (phraseAlternative) {
+            throw new IllegalArgumentException("or solo se admite entre palabras sueltas en esta base de datos");
+        }
+        return clauses;
+    }
+
+    /**
+     * Palabras negadas con {@code -}: se descartan las filas que contienen todas las
+     * de alguno de los grupos (una frase negada es un grupo de varias palabras).
+     */
+    public List<List<String>> excluded() {
+        return excluded;
+    }
+
+    private void parseKeywords() {
+        Matcher matcher = KEYWORD.matcher(keywords);
+        boolean alternative = false;
+        boolean lastPhrase = false;
+        while (matcher.find()) {
+            boolean negated = !matcher.group(1).isEmpty();
+            boolean quoted = matcher.group(2) != null;
+            String text = quoted ? matcher.group(2) : matcher.group(3);
+            if (!negated && !quoted && text.equalsIgnoreCase("or")) {
+                alternative = !clauses.isEmpty();
+                continue;
+            }
+            List<String> words = tokenize(text);
+            if (words.isEmpty()) {
+                continue;
+            }
+            if (negated) {
+                excluded.add(List.copyOf(words));
+                alternative = false;
+                continue;
+            }
+            if (alternative) {
+                if (lastPhrase || words.size() > 1) {
+                    phraseAlternative = true;
+                } else {
+                    List<String> last = new ArrayList<>(clauses.remove(clauses.size() - 1));
+                    last.add(words.get(0));
+                    clauses.add(List.copyOf(last));
+                    alternative = false;
+                    continue;
+                }
+            }
+            for (String word : words) {
+                clauses.add(List.of(word));
+            }
+            lastPhrase = words.size() > 1;
+            alternative = false;
+        }
+    }
+
+    /**
+     * ¿Tiene el JSON de data o de result todos los campos con su valor? Es la
+     * comprobación exacta del índice en memoria, que solo mira palabras.
+     */
+    public boolean matchesFields(String data, String result) {
+        for (Field field : fields) {
+            if (!(field.matches(data) || field.matches(result))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Palabras en minúsculas separadas por cualquier carácter que no sea letra o
+     * dígito, de forma parecida a la configuración 'simple' de PostgreSQL.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    @Getter
+    public static class Field {
+        private final String name;
+        private final String value;
+        private final Pattern pattern;
+
+        Field(String name, String value) {
+            this.name = name;
+            this.value = value;
+            // "name": value o "name": "value", sin distinguir mayúsculas
+            this.pattern = Pattern.compile("\"" + Pattern.quote(name) + "\"\\s*:\\s*\"?" + Pattern.quote(value) + "(?=\"|\\s*[,}\\]])",
+                    Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+
+        /** Frase "campo valor" para phraseto_tsquery. */
+        public String phrase() {
+            return name + " " + value;
+        }
+
+        private boolean matches(String json) {
+            return json != null && pattern.matcher(json).find();
+        }
+    }
+}
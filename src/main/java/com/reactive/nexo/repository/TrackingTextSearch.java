@@ -0,0 +1,161 @@
+package com.reactive.nexo.repository;
+
+import com.reactive.nexo.dto.TrackingCursor;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Búsqueda de texto en data y result del tracking.
+ * <p>
+ * En PostgreSQL usa la columna generada {@code search_vector} y su índice GIN
+ * (ver schema.sql), que se mantienen al insertar, y ordena por relevancia
+ * (ts_rank) o por fecha, paginando por keyset sobre ese orden. En otras bases de
+ * datos usa {@link TrackingTextIndex} y ordena siempre por fecha; la relevancia es
+ * el número de veces que aparecen las palabras buscadas, y un {@code or} entre
+ * frases no se admite.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TrackingTextSearch {
+
+    public enum Order { RANK, RECENT }
+
+    private static final String COLUMNS = "id, created_at, employee_id, action, data, result";
+    private static final int FALLBACK_CHUNK = 200;
+
+    private final DatabaseClient databaseClient;
+    private final TrackingTextIndex textIndex;
+
+    /**
+     * Filas que cumplen {@code query} posteriores a {@code after} en el orden pedido.
+     *
+     * @param limit filas como mucho; 0 o menos = sin límite (streaming)
+     * @throws IllegalArgumentException si el cursor no es de una búsqueda con ese orden
+     *                                  o la búsqueda no se puede evaluar en esta base de datos
+     */
+    public Flux<Map<String, Object>> search(TrackingTextQuery query, Order order, TrackingCursor after, int limit) {
+        if (textIndex.isActive()) {
+            return fallback(query, query.clauses(), after != null ? after.getId() : null,
+                    limit > 0 ? limit : Integer.MAX_VALUE);
+        }
+        if (order == Order.RANK && after != null && after.getRank() == null) {
+            throw new IllegalArgumentException("Cursor no válido para ordenar por relevancia");
+        }
+
+        List<String> tsqueries = new ArrayList<>();
+        if (!query.getKeywords().isEmpty()) {
+            tsqueries.add("websearch_to_tsquery('simple', :q)");
+        }
+        for (int i = 0; i < query.getFields().size(); i++) {
+            tsqueries.add("phraseto_tsquery('simple', :f" + i + ")");
+        }
+        String matches = "SELECT " + COLUMNS + ", ts_rank(search_vector, query) AS rank FROM tracking, (SELECT "
+                + String.join(" && ", tsqueries) + " AS query) q WHERE search_vector @@ query";
+        StringBuilder sql = new StringBuilder();
+        if (order == Order.RANK) {
+            sql.append("SELECT ").append(COLUMNS).append(", rank FROM (").append(matches).append(") matches");
+            if (after != null) {
+                sql.append(" WHERE rank < :kr OR (rank = :kr AND (created_at < :kc OR (created_at = :kc AND id < :ki)))");
+            }
+            sql.append(" ORDER BY rank DESC, created_at DESC, id DESC");
+        } else {
+            sql.append(matches);
+            if (after != null) {
+                sql.append(" AND (created_at < :kc OR (created_at = :kc AND id < :ki))");
+            }
+            sql.append(" ORDER BY created_at DESC, id DESC");
+        }
+        if (limit > 0) {
+            sql.append(" LIMIT :limit");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        if (!query.getKeywords().isEmpty()) {
+            spec = spec.bind("q", query.getKeywords());
+        }
+        for (int i = 0; i < query.getFields().size(); i++) {
+            spec = spec.bind("f" + i, query.getFields().get(i).phrase());
+        }
+        if (after != null) {
+            spec = spec.bind("kc", after.getCreatedAt()).bind("ki", after.getId());
+            if (order == Order.RANK) {
+                spec = spec.bind("kr", after.getRank());
+            }
+        }
+        if (limit > 0) {
+            spec = spec.bind("limit", limit);
+        }
+        return spec.map((row, metadata) -> toMap(row, row.get("rank", Float.class))).all();
+    }
+
+    /**
+     * Candidatos del índice en memoria por tramos, comprobando los campos sobre las
+     * filas leídas, hasta completar {@code remaining} o agotar los candidatos.
+     */
+    private Flux<Map<String, Object>> fallback(TrackingTextQuery query, List<List<String>> clauses,
+                                               Long beforeId, int remaining) {
+        return Flux.defer(() -> {
+            int chunk = Math.min(remaining, FALLBACK_CHUNK);
+            List<Long> ids = textIndex.candidates(clauses, query.excluded(), beforeId, chunk);
+            if (ids.isEmpty()) {
+                return Flux.empty();
+            }
+            Long lastCandidate = ids.get(ids.size() - 1);
+            List<String> terms = query.terms();
+            return databaseClient.sql("SELECT " + COLUMNS + " FROM tracking WHERE id IN (:ids) ORDER BY id DESC")
+                    .bind("ids", ids)
+                    .map((row, metadata) -> toMap(row, null))
+                    .all()
+                    .filter(row -> query.matchesFields((String) row.get("data"), (String) row.get("result")))
+                    .map(row -> {
+                        row.put("rank", frequency(terms, (String) row.get("data"), (String) row.get("result")));
+                        return row;
+                    })
+                    .take(remaining)
+                    .collectList()
+                    .flatMapMany(rows -> {
+                        Flux<Map<String, Object>> page = Flux.fromIterable(rows);
+                        int left = remaining - rows.size();
+                        return left > 0 && ids.size() == chunk
+                                ? page.concatWith(fallback(query, clauses, lastCandidate, left))
+                                : page;
+                    });
+        });
+    }
+
+    private static Map<String, Object> toMap(Row row, Float rank) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("id", row.get("id", Long.class));
+        values.put("created_at", row.get("created_at", LocalDateTime.class));
+        values.put("employee_id", row.get("employee_id", Long.class));
+        values.put("action", row.get("action", String.class));
+        values.put("data", row.get("data", String.class));
+        values.put("result", row.get("result", String.class));
+        values.put("rank", rank);
+        return values;
+    }
+
+    private static Float frequency(List<String> terms, String data, String result) {
+        int hits = 0;
+        for (String token : TrackingTextQuery.tokenize(data)) {
+            if (terms.contains(token)) {
+                hits++;
+            }
+        }
+        for (String token : TrackingTextQuery.tokenize(result)) {
+            if (terms.contains(token)) {
+                hits++;
+            }
+        }
+        return (float) hits;
+    }
+}
@@ -23,11 +23,17 @@ import java.net.InetSocketAddress;
 public class JwtAuthenticationFilter implements WebFilter {
 
     private final JwtUtil jwtUtil;
-    private final PermissionChecker permissionChecker; // Usamos la clase del ejemplo anterior
+    private final PermissionChecker permissionChecker;
+    private final RolePermissionTable rolePermissionTable;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, PermissionChecker permissionChecker,
+                                   RolePermissionTable rolePermissionTable,
+                                   TokenRevocationService tokenRevocationService) {
         this.jwtUtil = jwtUtil;
-        this.permissionChecker = new PermissionChecker();
+        this.permissionChecker = permissionChecker;
+        this.rolePermissionTable = rolePermissionTable;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @SuppressWarnings("unchecked")           
@@ -50,44 +56,47 @@ public class JwtAuthenticationFilter implements WebFilter {
         String ipAddress = (request.getRemoteAddress() != null) ? 
                           request.getRemoteAddress().getHostString() : "unknown";
 
-        logger.info("Este es un mensaje de información: "+ authorizationHeader);
-        logger.info("Este es un mensaje de información: "+ employeeId);
-        logger.info("Este es un mensaje de información: "+ userAgent);
-        logger.info("Este es un mensaje de información: "+ ipAddress);
+        // Cada petición queda en el log de acceso (AccessLogFilter); aquí solo se depura
+        logger.debug("Authenticating request {} for employee {} from {}", path, employeeId, ipAddress);
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             String token = authorizationHeader.substring(7); // Quita "Bearer "
 
             try {
-                Claims claims = jwtUtil.extractClaims(token);                
-                
+                // Verificado una vez por petición (RateLimitFilter puede haberlo hecho ya)
+                Claims claims = jwtUtil.requestClaims(exchange);
+                if (claims == null) {
+                    // Token inválido o expirado
+                    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                    return exchange.getResponse().setComplete();
+                }
+
                 if(!ipAddress.equals(claims.get("ip_address"))){      
-                    logger.info("bad request: "+ ipAddress +" != "+ claims.get("ip_address"));
+                    logger.debug("bad request: ip {} != {}", ipAddress, claims.get("ip_address"));
                     throw new Exception("Bad request");
                 }
                 if(!userAgent.equals(claims.get("user_agent"))){                    
-                    logger.info("bad request: "+ userAgent +" != "+ claims.get("user_agent"));
+                    logger.debug("bad request: user agent mismatch");
                     throw new Exception("Bad request");
                 }
                 if(!employeeId.equals(claims.get("employee_id"))){                    
-                    logger.info("bad request: "+ employeeId +" != "+ claims.get("employee_id"));
+                    logger.debug("bad request: employee {} != {}", employeeId, claims.get("employee_id"));
                     throw new Exception("Bad request");
                 }
                 
-                List<Map<String, Object>> permissions = (List<Map<String, Object>>) claims.get("permissions");
                 String requestMethod = request.getMethod().name();
-                boolean hasPermission = permissionChecker.hasPermission(requestMethod, path, permissions);
-
-                if (hasPermission) {
-                    return chain.filter(exchange);
-                } else {
-                    exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN); // 403 Forbidden
-                    return exchange.getResponse().setComplete();
-                }
+                // El filtro de Bloom resuelve sin E/S el caso normal (token no revocado)
+                return tokenRevocationService.isRevoked(token).flatMap(revoked -> {
+                    if (revoked) {
+                        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                        return exchange.getResponse().setComplete();
+                    }
+                    return authorize(exchange, chain, claims, requestMethod, path);
+                });
 
             } catch (Exception e) {
 
-                logger.info("Este es un mensaje de información: "+ e.getMessage());
+                logger.debug("Rejected request {}: {}", path, e.getMessage());
                 // Token inválido o expirado
                 exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED); // 401 Unauthorized
                 return exchange.getResponse().setComplete();
@@ -99,5 +108,27 @@ public class JwtAuthenticationFilter implements WebFilter {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private Mono<Void> authorize(ServerWebExchange exchange, WebFilterChain chain, Claims claims,
+                                 String requestMethod, String path) {
+        Object roleId = claims.get(JwtUtil.ROLE_CLAIM);
+        if (roleId instanceof Number && !claims.containsKey("permissions")) {
+            // Token compacto: los permisos salen de la tabla local de roles
+            return rolePermissionTable.matcher(((Number) roleId).intValue(), claims.get(JwtUtil.PERMISSION_VERSION_CLAIM, String.class))
+                .map(matcher -> permissionChecker.hasPermission(requestMethod, path, matcher))
+                .onErrorReturn(false)
+                .flatMap(allowed -> allowed ? chain.filter(exchange) : forbidden(exchange));
+        }
+
+        List<Map<String, Object>> permissions = (List<Map<String, Object>>) claims.get("permissions");
+        boolean hasPermission = permissionChecker.hasPermission(requestMethod, path, permissions);
+        return hasPermission ? chain.filter(exchange) : forbidden(exchange);
+    }
+
+    private static Mono<Void> forbidden(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN); // 403 Forbidden
+        return exchange.getResponse().setComplete();
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 }
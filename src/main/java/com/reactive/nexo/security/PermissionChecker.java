@@ -1,13 +1,30 @@
 package com.reactive.nexo.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
 import java.util.List;
 import java.util.Map;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+/**
+ * Comprueba los permisos del token contra el método y path de la petición.
+ * <p>
+ * La lista de permisos de cada token se compila una vez en un {@link PermissionMatcher}.
+ * Los matchers se guardan por identidad de la lista: los claims que devuelve
+ * {@code JwtUtil} se reutilizan mientras el token está en su caché, así que las
+ * peticiones siguientes del mismo token solo hacen la búsqueda y el recorrido.
+ */
+@Component
 public class PermissionChecker {
 
-    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    private static final String TWO_FACTOR_PREFIX = "/api/v1/2fa/";
+
+    private final Cache<List<Map<String, Object>>, PermissionMatcher> matchers = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
+
     /**
      * Verifica si un método y path dados tienen permiso en la lista.
      *
@@ -16,46 +33,33 @@ public class PermissionChecker {
      * @param permissions list permissions
      * @return true si se encuentra un permiso coincidente, false en caso contrario.
      */
-    public boolean hasPermission(String requestMethod, String requestPath,List<Map<String, Object>> permissions) {
+    public boolean hasPermission(String requestMethod, String requestPath, List<Map<String, Object>> permissions) {
         String normalizedPath = requestPath.startsWith("/") ? requestPath : "/" + requestPath;
-        normalizedPath = normalizedPath.endsWith("/") ? normalizedPath.substring(0, normalizedPath.length() - 1) : normalizedPath;
-        //normalizedPath = normalizedPath.contains("?") ? normalizedPath.substring(0, normalizedPath.indexOf("?")) : normalizedPath;
-        
-        if(normalizedPath.startsWith("/api/v1/2fa/")){
+        int end = normalizedPath.endsWith("/") ? normalizedPath.length() - 1 : normalizedPath.length();
+
+        if (normalizedPath.startsWith(TWO_FACTOR_PREFIX)) {
             return true;
         }
-        if (permissions != null && !permissions.isEmpty()) {
-            logger.info("Iniciando impresión detallada de permisos ({} elementos):", permissions.size());
-            
-            for (Map<String, Object> permissionRule : permissions) {
-                @SuppressWarnings("unchecked")           
-                List<String> endpoints = (List<String>) permissionRule.get(requestMethod);
-                logger.info("Regla de permiso: {}", permissionRule.get(requestMethod));
-                if(endpoints !=  null){
-                      for (String allowedPattern : endpoints) {             
-                         allowedPattern = allowedPattern.endsWith("/") ?
-                             allowedPattern.substring(0, allowedPattern.length() - 1) : allowedPattern;  
-                         allowedPattern = allowedPattern.startsWith("/") ? allowedPattern : "/" + allowedPattern;
-                         // remove placeholders enclosed in {}
-                         allowedPattern = allowedPattern.replaceAll("\\{[^}]*\\}", "");
-                         // normalize multiple slashes and trailing slash
-                         allowedPattern = allowedPattern.replaceAll("/{2,}", "/");
-                         allowedPattern = allowedPattern.endsWith("/") && !"/".equals(allowedPattern)
-                             ? allowedPattern.substring(0, allowedPattern.length() - 1)
-                             : allowedPattern;
-                       logger.info("Regla de permiso: {}", allowedPattern +":"+normalizedPath);
-                       if(normalizedPath.startsWith(allowedPattern)){
-                        return true;
-                       }
-                    }
-                }
-            }
-            logger.info("Impresión de permisos finalizada.");
-        } else {
-            logger.info("La lista de permisos está vacía o es nula.");
+        if (permissions == null || permissions.isEmpty()) {
+            return false;
         }
-        
+        return matcher(permissions).matches(requestMethod, normalizedPath, end);
+    }
+
+    /**
+     * Igual que {@link #hasPermission(String, String, List)} con permisos ya compilados
+     * (tokens compactos, ver {@link RolePermissionTable}).
+     */
+    public boolean hasPermission(String requestMethod, String requestPath, PermissionMatcher matcher) {
+        String normalizedPath = requestPath.startsWith("/") ? requestPath : "/" + requestPath;
+        int end = normalizedPath.endsWith("/") ? normalizedPath.length() - 1 : normalizedPath.length();
+        return normalizedPath.startsWith(TWO_FACTOR_PREFIX) || matcher.matches(requestMethod, normalizedPath, end);
+    }
 
-        return false;
+    /**
+     * Matcher compilado de la lista de permisos (se compila la primera vez).
+     */
+    public PermissionMatcher matcher(List<Map<String, Object>> permissions) {
+        return matchers.get(permissions, PermissionMatcher::compile);
     }
-}
\ No newline at end of file
+}
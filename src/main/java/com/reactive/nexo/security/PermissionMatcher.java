@@ -0,0 +1,154 @@
+package com.reactive.nexo.security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Permisos de un token compilados en un trie de segmentos por método HTTP.
+ * <p>
+ * Conserva la semántica de prefijo de {@link PermissionChecker}: un permiso
+ * concede su path y todo lo que empiece por él, también dentro del último
+ * segmento ("/api/v1/emp" concede "/api/v1/employees"). Los placeholders finales
+ * ("/employees/{id}") se descartan como antes, y un segmento intermedio que es
+ * un placeholder ("/employees/{id}/schedule") acepta cualquier segmento.
+ * {@link #matches} recorre el path sin crear substrings; el matcher es inmutable
+ * y seguro para lectura concurrente.
+ */
+public final class PermissionMatcher {
+
+    private static final Node EMPTY = new Node(new Node[0], new String[0], new String[0], null);
+
+    private final Map<String, Node> roots;
+
+    private PermissionMatcher(Map<String, Node> roots) {
+        this.roots = roots;
+    }
+
+    /**
+     * Compila la lista de permisos del token: cada elemento asocia un método HTTP
+     * con los paths que permite.
+     */
+    public static PermissionMatcher compile(List<Map<String, Object>> permissions) {
+        Map<String, Builder> builders = new LinkedHashMap<>();
+        if (permissions != null) {
+            for (Map<String, Object> permissionRule : permissions) {
+                permissionRule.forEach((method, endpoints) -> {
+                    if (endpoints instanceof List) {
+                        Builder root = builders.computeIfAbsent(method, m -> new Builder());
+                        for (Object endpoint : (List<?>) endpoints) {
+                            if (endpoint != null) {
+                                add(root, endpoint.toString());
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        Map<String, Node> roots = new HashMap<>();
+        builders.forEach((method, builder) -> roots.put(method, builder.build()));
+        return new PermissionMatcher(roots);
+    }
+
+    /**
+     * Indica si el método tiene permiso sobre {@code path[0, end)}; el path debe
+     * empezar por "/".
+     */
+    public boolean matches(String method, String path, int end) {
+        Node root = roots.get(method);
+        return root != null && matches(root, path, 0, end);
+    }
+
+    private static boolean matches(Node node, String path, int slash, int end) {
+        if (slash >= end) {
+            return false;
+        }
+        int start = slash + 1;
+        int segmentEnd = path.indexOf('/', start);
+        if (segmentEnd < 0 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+        // Los prefijos no contienen "/", así que nunca coinciden más allá del segmento
+        for (String prefix : node.prefixes) {
+            if (start + prefix.length() <= end && path.startsWith(prefix, start)) {
+                return true;
+            }
+        }
+        int length = segmentEnd - start;
+        for (int i = 0; i < node.children.length; i++) {
+            String segment = node.segments[i];
+            if (segment.length() == length && path.regionMatches(start, segment, 0, length)
+                    && matches(node.children[i], path, segmentEnd, end)) {
+                return true;
+            }
+        }
+        return node.wildcard != null && length > 0 && matches(node.wildcard, path, segmentEnd, end);
+    }
+
+    private static void add(Builder root, String pattern) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(isPlaceholder(segment) ? null : segment.replaceAll("\\{[^}]*\\}", ""));
+            }
+        }
+        // Los placeholders finales se ignoran: el permiso es el prefijo anterior
+        while (!segments.isEmpty() && segments.get(segments.size() - 1) == null) {
+            segments.remove(segments.size() - 1);
+        }
+        if (segments.isEmpty()) {
+            // "/" concede cualquier path
+            root.prefixes.add("");
+            return;
+        }
+        Builder node = root;
+        for (String segment : segments.subList(0, segments.size() - 1)) {
+            node = segment == null
+                ? (node.wildcard != null ? node.wildcard : (node.wildcard = new Builder()))
+                : node.children.computeIfAbsent(segment, s -> new Builder());
+        }
+        node.prefixes.add(segments.get(segments.size() - 1));
+    }
+
+    private static boolean isPlaceholder(String segment) {
+        return segment.replaceAll("\\{[^}]*\\}", "").isEmpty();
+    }
+
+    private static final class Node {
+        private final Node[] children;
+        private final String[] segments;
+        private final String[] prefixes;
+        private final Node wildcard;
+
+        private Node(Node[] children, String[] segments, String[] prefixes, Node wildcard) {
+            this.children = children;
+            this.segments = segments;
+            this.prefixes = prefixes;
+            this.wildcard = wildcard;
+        }
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> children = new LinkedHashMap<>();
+        private final List<String> prefixes = new ArrayList<>();
+        private Builder wildcard;
+
+        private Node build() {
+            if (children.isEmpty() && prefixes.isEmpty() && wildcard == null) {
+                return EMPTY;
+            }
+            Node[] nodes = new Node[children.size()];
+            String[] segments = new String[children.size()];
+            int i = 0;
+            for (Map.Entry<String, Builder> child : children.entrySet()) {
+                segments[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            return new Node(nodes, segments, prefixes.stream().distinct().toArray(String[]::new),
+                wildcard != null ? wildcard.build() : null);
+        }
+    }
+}
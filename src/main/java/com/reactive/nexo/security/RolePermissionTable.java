@@ -0,0 +1,208 @@
+package com.reactive.nexo.security;
+
+import com.reactive.nexo.gateway.UpstreamClientRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tabla local rol → permisos compilados para los tokens compactos, que solo llevan
+ * {@code rol_id} y la versión del conjunto de permisos ({@code perm_v}).
+ * <p>
+ * Se alimenta en el login con los permisos que devuelve el servicio de empleados,
+ * carga bajo demanda los roles desconocidos y se refresca en segundo plano. La
+ * lectura es un {@code get} sobre un {@link ConcurrentHashMap}; un token con una
+ * versión distinta a la de la tabla dispara un refresco de su rol, como mucho uno
+ * cada {@code min-reload-interval}: tras un cambio de permisos los tokens antiguos
+ * siguen sin coincidir hasta que caducan.
+ */
+@Component
+@Slf4j
+public class RolePermissionTable {
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> PERMISSIONS_TYPE =
+            new ParameterizedTypeReference<>() { };
+
+    private final WebClient employeesClient;
+    private final String permissionsPath;
+    private final Duration refreshInterval;
+    private final long minReloadNanos;
+    private final Map<Integer, RoleEntry> roles = new ConcurrentHashMap<>();
+    private final Map<Integer, Mono<RoleEntry>> loading = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> lastLoads = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder versionMismatches = new LongAdder();
+    private final LongAdder throttledReloads = new LongAdder();
+    private Disposable refresher;
+
+    public RolePermissionTable(UpstreamClientRegistry clientRegistry,
+                               @Value("${jwt.roles.permissions-path:/api/v1/rols/{id}/permissions}") String permissionsPath,
+                               @Value("${jwt.roles.refresh-interval:5m}") Duration refreshInterval,
+                               @Value("${jwt.roles.min-reload-interval:30s}") Duration minReloadInterval) {
+        this.employeesClient = clientRegistry.client("employees");
+        this.permissionsPath = permissionsPath;
+        this.refreshInterval = refreshInterval;
+        this.minReloadNanos = minReloadInterval.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher = Flux.interval(refreshInterval, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(List.copyOf(roles.keySet()))
+                        .concatMap(roleId -> load(roleId).onErrorResume(e -> Mono.empty())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * Registra los permisos de un rol (por ejemplo los recibidos en el login) y
+     * devuelve la versión que se pone en el token.
+     */
+    public String register(Integer roleId, List<Map<String, Object>> permissions) {
+        RoleEntry entry = new RoleEntry(version(permissions), PermissionMatcher.compile(permissions));
+        RoleEntry previous = roles.put(roleId, entry);
+        if (previous != null && !previous.version.equals(entry.version)) {
+            log.info("Permissions of role {} changed: version {} -> {}", roleId, previous.version, entry.version);
+        }
+        return entry.version;
+    }
+
+    /**
+     * Permisos compilados del rol. Si la versión del token no coincide con la de la
+     * tabla se usa la de la tabla y se refresca el rol en segundo plano, salvo que se
+     * haya cargado hace menos de {@code min-reload-interval}.
+     */
+    public Mono<PermissionMatcher> matcher(Integer roleId, String version) {
+        RoleEntry entry = roles.get(roleId);
+        if (entry == null) {
+            return load(roleId).map(loaded -> loaded.matcher);
+        }
+        if (version != null && !version.equals(entry.version)) {
+            versionMismatches.increment();
+            Long lastLoad = lastLoads.get(roleId);
+            if (lastLoad != null && System.nanoTime() - lastLoad < minReloadNanos) {
+                throttledReloads.increment();
+            } else {
+                load(roleId).subscribe(loaded -> { }, e -> { });
+            }
+        }
+        return entry.mono;
+    }
+
+    public void invalidate(Integer roleId) {
+        roles.remove(roleId);
+    }
+
+    public void invalidateAll() {
+        roles.clear();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        Map<Integer, String> versions = new LinkedHashMap<>();
+        roles.forEach((roleId, entry) -> versions.put(roleId, entry.version));
+        snapshot.put("roles", versions);
+        snapshot.put("loads", loads.sum());
+        snapshot.put("loadFailures", loadFailures.sum());
+        snapshot.put("versionMismatches", versionMismatches.sum());
+        snapshot.put("throttledReloads", throttledReloads.sum());
+        return snapshot;
+    }
+
+    /**
+     * Carga el rol del servicio de empleados; las cargas concurrentes del mismo rol
+     * comparten la llamada. El intento cuenta para el intervalo mínimo entre
+     * recargas aunque falle.
+     */
+    private Mono<RoleEntry> load(Integer roleId) {
+        return loading.computeIfAbsent(roleId, id -> employeesClient.get()
+                .uri(permissionsPath, id)
+                .retrieve()
+                .bodyToMono(PERMISSIONS_TYPE)
+                .map(permissions -> {
+                    loads.increment();
+                    register(id, permissions);
+                    return roles.get(id);
+                })
+                .doOnError(e -> {
+                    loadFailures.increment();
+                    log.warn("Cannot load permissions of role {}: {}", id, e.getMessage());
+                })
+                .doOnSubscribe(subscription -> lastLoads.put(id, System.nanoTime()))
+                .doFinally(signal -> loading.remove(id))
+                .cache());
+    }
+
+    /**
+     * Versión de un conjunto de permisos: hash de los pares método/path ordenados y
+     * sin repetir, así que no depende del orden ni del formato en que los serialice
+     * el login o {@code /rols/{id}/permissions}.
+     */
+    public static String version(List<Map<String, Object>> permissions) {
+        Set<String> canonical = new TreeSet<>();
+        if (permissions != null) {
+            for (Map<String, Object> permissionRule : permissions) {
+                permissionRule.forEach((method, endpoints) -> {
+                    if (endpoints instanceof List) {
+                        for (Object endpoint : (List<?>) endpoints) {
+                            if (endpoint != null) {
+                                canonical.add(method + ' ' + endpoint);
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join("\n", canonical).getBytes(StandardCharsets.UTF_8));
+            StringBuilder version = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                version.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return version.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class RoleEntry {
+        private final String version;
+        private final PermissionMatcher matcher;
+        private final Mono<PermissionMatcher> mono;
+
+        private RoleEntry(String version, PermissionMatcher matcher) {
+            this.version = version;
+            this.matcher = matcher;
+            this.mono = Mono.just(matcher);
+        }
+    }
+}
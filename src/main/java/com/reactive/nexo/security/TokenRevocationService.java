@@ -0,0 +1,189 @@
+package com.reactive.nexo.security;
+
+import com.reactive.nexo.repository.RevokedTokenRepository;
+import com.reactive.nexo.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revocación de tokens antes de su expiración (logout, robo de credenciales).
+ * <p>
+ * Los tokens revocados se guardan en la tabla {@code revoked_token} por el SHA-256
+ * del token. En cada petición se consulta primero un filtro de Bloom: si dice que
+ * no, el token no está revocado y no se toca la base de datos. Si dice que quizá,
+ * se mira el conjunto exacto en memoria y solo si tampoco está ahí (falso positivo
+ * o entrada antigua) se consulta la base de datos. Filtro y conjunto se
+ * reconstruyen periódicamente desde la tabla, lo que también recoge las
+ * revocaciones hechas en otras instancias del gateway y descarta las expiradas.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private static final Mono<Boolean> NOT_REVOKED = Mono.just(Boolean.FALSE);
+    private static final Mono<Boolean> REVOKED = Mono.just(Boolean.TRUE);
+    private static final long MIN_EXPECTED_ENTRIES = 10_000;
+
+    private final RevokedTokenRepository repository;
+    private final JwtUtil jwtUtil;
+    private final Duration rebuildInterval;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter bloomFilter;
+    private volatile Map<String, Long> revoked = new ConcurrentHashMap<>();
+    /** Ordena revoke() con el reemplazo de filtro y conjunto en rebuild(). */
+    private final Object swapLock = new Object();
+    private Disposable rebuilder;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder bloomHits = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenRevocationService(RevokedTokenRepository repository, JwtUtil jwtUtil,
+                                  @Value("${jwt.revocation.rebuild-interval:30s}") Duration rebuildInterval,
+                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.jwtUtil = jwtUtil;
+        this.rebuildInterval = rebuildInterval;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = new BloomFilter(MIN_EXPECTED_ENTRIES, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuilder = Flux.interval(Duration.ZERO, rebuildInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild().onErrorResume(e -> {
+                    log.warn("Cannot rebuild token revocation filter: {}", e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilder != null) {
+            rebuilder.dispose();
+        }
+    }
+
+    /**
+     * Indica si el token está revocado. En el caso habitual (token no revocado)
+     * responde sin asignar memoria ni consultar la base de datos.
+     */
+    public Mono<Boolean> isRevoked(String token) {
+        checks.increment();
+        String digest = JwtUtil.digest(token);
+        if (!bloomFilter.mightContain(digest)) {
+            return NOT_REVOKED;
+        }
+        bloomHits.increment();
+        Long expiresAt = revoked.get(digest);
+        if (expiresAt != null) {
+            if (expiresAt > System.currentTimeMillis()) {
+                rejected.increment();
+                return REVOKED;
+            }
+            return NOT_REVOKED;
+        }
+        databaseLookups.increment();
+        return repository.findActive(digest, LocalDateTime.now())
+                .map(entry -> {
+                    revoked.put(digest, toMillis(entry.getExpiresAt()));
+                    rejected.increment();
+                    return Boolean.TRUE;
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    falsePositives.increment();
+                    return Boolean.FALSE;
+                }));
+    }
+
+    /**
+     * Revoca el token hasta su expiración y lo saca de la caché de verificación.
+     */
+    public Mono<Void> revoke(String token, Claims claims) {
+        String digest = JwtUtil.digest(token);
+        long expiresAtMillis = claims.getExpiration() != null
+                ? claims.getExpiration().getTime()
+                : System.currentTimeMillis() + Duration.ofDays(1).toMillis();
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtMillis), ZoneId.systemDefault());
+        String employeeId = claims.get("employee_id", String.class);
+        // Primero en memoria para que el token deje de valer aunque falle la escritura
+        synchronized (swapLock) {
+            revoked.put(digest, expiresAtMillis);
+            bloomFilter.put(digest);
+        }
+        jwtUtil.invalidate(token);
+        return repository.insert(digest, employeeId, expiresAt)
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(0))
+                .doOnSuccess(rows -> log.info("Token revoked for employee {}", employeeId))
+                .then();
+    }
+
+    /**
+     * Reconstruye filtro y conjunto exacto con las revocaciones vigentes y borra las
+     * expiradas de la tabla.
+     */
+    public Mono<Void> rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        return repository.deleteExpired(now)
+                .thenMany(repository.findAllActive(now))
+                .collectMap(entry -> entry.getTokenDigest(), entry -> toMillis(entry.getExpiresAt()))
+                .doOnNext(active -> {
+                    Map<String, Long> current = new ConcurrentHashMap<>(active);
+                    // Con el cerrojo ninguna revocación local queda entre la copia y el reemplazo
+                    synchronized (swapLock) {
+                        long nowMillis = System.currentTimeMillis();
+                        revoked.forEach((digest, expiresAt) -> {
+                            if (expiresAt > nowMillis) {
+                                current.putIfAbsent(digest, expiresAt);
+                            }
+                        });
+                        BloomFilter filter = new BloomFilter(Math.max(MIN_EXPECTED_ENTRIES, current.size() * 2L), falsePositiveRate);
+                        current.keySet().forEach(filter::put);
+                        revoked = current;
+                        bloomFilter = filter;
+                    }
+                    log.debug("Token revocation filter rebuilt with {} entries", current.size());
+                })
+                .then();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("revoked", revoked.size());
+        snapshot.put("bloomBits", bloomFilter.getBitCount());
+        snapshot.put("bloomHashes", bloomFilter.getHashCount());
+        snapshot.put("checks", checks.sum());
+        snapshot.put("bloomHits", bloomHits.sum());
+        snapshot.put("databaseLookups", databaseLookups.sum());
+        snapshot.put("falsePositives", falsePositives.sum());
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,627 @@
+package com.reactive.nexo.service;
+
+import com.reactive.nexo.config.GatewayProperties;
+import com.reactive.nexo.gateway.AdaptiveLimiter;
+import com.reactive.nexo.gateway.BodyCapture;
+import com.reactive.nexo.gateway.Bulkhead;
+import com.reactive.nexo.gateway.CachedResponse;
+import com.reactive.nexo.gateway.CircuitBreaker;
+import com.reactive.nexo.gateway.GatewayRejectedException;
+import com.reactive.nexo.gateway.RequestCoalescer;
+import com.reactive.nexo.gateway.ResponseCache;
+import com.reactive.nexo.gateway.RetryBudget;
+import com.reactive.nexo.gateway.RouteDescriptor;
+import com.reactive.nexo.gateway.RouteRegistry;
+import io.netty.handler.timeout.TimeoutException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reenvío de peticiones del gateway hacia los servicios upstream.
+ * <p>
+ * Los bodies de petición y respuesta pasan en streaming: los {@link DataBuffer}
+ * entrantes se entregan al {@link WebClient} según llegan y los del upstream se
+ * escriben directamente en la respuesta, de modo que la memoria por petición no
+ * crece con el tamaño del payload. Antes de cada llamada se consultan el límite
+ * adaptativo y el circuit breaker de la ruta y el bulkhead de su servicio; los
+ * GET de rutas con caché pasan además por {@link ResponseCache} y los de rutas
+ * con coalesce por {@link RequestCoalescer}. Los métodos idempotentes se reintentan y, si la ruta
+ * lo activa, se duplican (hedging) dentro del {@link RetryBudget} global.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GatewayService {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private static final String UNKNOWN_SERVICE = "Gateway Error: Unknown service for path ";
+    private static final String UNREACHABLE = "Gateway Error: Cannot reach backend service";
+
+    // Headers hop-by-hop (RFC 7230 6.1) que no se deben reenviar en ninguna dirección
+    private static final List<String> HOP_BY_HOP_HEADERS = List.of(
+        HttpHeaders.CONNECTION, "Keep-Alive", "Proxy-Connection", HttpHeaders.TRANSFER_ENCODING,
+        HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.UPGRADE, HttpHeaders.HOST);
+
+    private final RouteRegistry routeRegistry;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final RetryBudget retryBudget;
+
+    public Mono<Void> forward(ServerWebExchange exchange, HttpMethod method, boolean withBody) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        String path = request.getPath().toString();
+        String completeUri = buildCompleteUri(path, request.getURI().getQuery());
+
+        RouteDescriptor route = routeRegistry.resolve(path);
+        if (route == null) {
+            return writeError(response, HttpStatus.BAD_REQUEST, UNKNOWN_SERVICE + path);
+        }
+        long maxBodyBytes = route.getMaxBodyBytes();
+        if (withBody && maxBodyBytes >= 0 && request.getHeaders().getContentLength() > maxBodyBytes) {
+            return writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Gateway Error: Request body too large");
+        }
+        log.debug("GateWay -> Forwarding {} request to: {}", method, completeUri);
+
+        Mono<Void> result;
+        if (method == HttpMethod.GET && responseCache.isEnabled(route) && !ResponseCache.bypass(request)) {
+            result = forwardCached(route, exchange, completeUri);
+        } else if (method == HttpMethod.GET) {
+            result = fetchGet(route, exchange, completeUri, null, "")
+                .flatMap(entity -> writeResponse(response, entity.getStatusCode(), entity.getHeaders(), entity.getBody()));
+        } else {
+            result = exchange(route, request, method, withBody, completeUri, null)
+                .flatMap(entity -> writeResponse(response, entity.getStatusCode(), entity.getHeaders(), entity.getBody()));
+        }
+        return result.onErrorResume(e -> handleError(response, route, method, e));
+    }
+
+    /**
+     * GET a través de la caché: una entrada vigente se sirve sin llamar al upstream,
+     * una vencida con validadores se revalida con If-None-Match/If-Modified-Since y
+     * una respuesta nueva almacenable se copia mientras se envía al cliente.
+     */
+    private Mono<Void> forwardCached(RouteDescriptor route, ServerWebExchange exchange, String completeUri) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        String key = responseCache.key(route, request, completeUri);
+        if (key == null) {
+            return fetchGet(route, exchange, completeUri, null, "")
+                .flatMap(entity -> writeResponse(response, entity.getStatusCode(), entity.getHeaders(), entity.getBody()));
+        }
+        CachedResponse cached = responseCache.get(key);
+        if (cached != null && cached.isFresh(System.currentTimeMillis()) && !ResponseCache.forceRevalidation(request)) {
+            responseCache.recordHit(route);
+            return writeCached(request, response, cached, "HIT");
+        }
+        Consumer<HttpHeaders> conditional = cached != null && cached.hasValidators()
+            ? headers -> {
+                headers.remove(HttpHeaders.IF_NONE_MATCH);
+                headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                if (cached.getEtag() != null) {
+                    headers.setIfNoneMatch(cached.getEtag());
+                }
+                if (cached.getLastModified() != null) {
+                    headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+                }
+            }
+            : null;
+
+        String validators = conditional != null ? "|" + cached.getEtag() + "|" + cached.getLastModified() : "";
+        return fetchGet(route, exchange, completeUri, conditional, validators)
+            .flatMap(entity -> {
+                if (conditional != null && entity.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                    CachedResponse refreshed = responseCache.refresh(route, key, cached, entity.getHeaders());
+                    return entity.getBody()
+                        .doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> writeCached(request, response, refreshed, "REVALIDATED")));
+                }
+                responseCache.recordMiss(route);
+                response.getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+                if (!responseCache.isStorable(route, entity.getStatusCode(), entity.getHeaders())) {
+                    return writeResponse(response, entity.getStatusCode(), entity.getHeaders(), entity.getBody());
+                }
+                BodyCapture capture = new BodyCapture(responseCache.getMaxEntryBytes());
+                Flux<DataBuffer> body = capture.tee(entity.getBody())
+                    .doOnComplete(() -> {
+                        if (!capture.isTruncated()) {
+                            responseCache.store(route, key, entity.getStatusCode(), entity.getHeaders(), capture.toByteArray());
+                        }
+                    });
+                return writeResponse(response, entity.getStatusCode(), entity.getHeaders(), body);
+            });
+    }
+
+    /**
+     * GET al upstream. En rutas con coalesce, las peticiones idénticas concurrentes
+     * comparten una única llamada cuyo body (agregado una vez) se envuelve sin
+     * copiarlo para cada respuesta; si supera el tamaño máximo cada petición hace
+     * su propia llamada en streaming.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> fetchGet(RouteDescriptor route, ServerWebExchange exchange,
+                                                            String completeUri, Consumer<HttpHeaders> headersCustomizer,
+                                                            String keySuffix) {
+        ServerHttpRequest request = exchange.getRequest();
+        DataBufferFactory bufferFactory = exchange.getResponse().bufferFactory();
+        String key = requestCoalescer.isEnabled(route) ? requestCoalescer.key(route, exchange, completeUri) : null;
+        if (key == null) {
+            return exchange(route, request, HttpMethod.GET, false, completeUri, headersCustomizer);
+        }
+        return requestCoalescer.execute(route, key + keySuffix, () ->
+                exchange(route, request, HttpMethod.GET, false, completeUri, headersCustomizer)
+                    .flatMap(entity -> DataBufferUtils.join(entity.getBody(), requestCoalescer.getMaxBodyBytes())
+                        .map(joined -> {
+                            byte[] bytes = new byte[joined.readableByteCount()];
+                            joined.read(bytes);
+                            DataBufferUtils.release(joined);
+                            return bytes;
+                        })
+                        .defaultIfEmpty(new byte[0])
+                        .map(bytes -> new ResponseEntity<>(bytes, entity.getHeaders(), entity.getStatusCode()))))
+            .map(shared -> new ResponseEntity<>(
+                Flux.defer(() -> Flux.just(bufferFactory.wrap(shared.getBody()))),
+                shared.getHeaders(), shared.getStatusCode()))
+            .onErrorResume(DataBufferLimitException.class, e -> {
+                requestCoalescer.recordFallback(route);
+                return exchange(route, request, HttpMethod.GET, false, completeUri, headersCustomizer);
+            });
+    }
+
+    /**
+     * Llamada al upstream con la política de reintentos y hedging de la ruta. Si el
+     * método no es repetible, o su body no se puede guardar para repetirlo, se hace
+     * un único intento en streaming.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> exchange(RouteDescriptor route, ServerHttpRequest request,
+                                                            HttpMethod method, boolean withBody, String completeUri,
+                                                            Consumer<HttpHeaders> headersCustomizer) {
+        return Mono.defer(() -> {
+            retryBudget.recordRequest();
+            GatewayProperties.Retry retry = route.getRetry();
+            boolean repeatable = (isIdempotent(method) || retry.isNonIdempotent())
+                && (retry.getMaxRetries() > 0 || route.getHedge().isEnabled());
+            if (repeatable && !withBody) {
+                return repeated(route, request, method, null, completeUri, headersCustomizer);
+            }
+            long contentLength = request.getHeaders().getContentLength();
+            if (!repeatable || contentLength < 0 || contentLength > retry.getMaxBufferedBodyBytes()) {
+                Flux<DataBuffer> body = withBody ? limitedBody(request, route.getMaxBodyBytes()) : null;
+                return attempt(route, request, method, body, completeUri, headersCustomizer);
+            }
+            return DataBufferUtils.join(limitedBody(request, route.getMaxBodyBytes()))
+                .map(GatewayService::toBytes)
+                .defaultIfEmpty(new byte[0])
+                .flatMap(bytes -> repeated(route, request, method, bytes, completeUri, headersCustomizer));
+        });
+    }
+
+    /**
+     * Intentos repetibles: cada uno reenvía el mismo body guardado. Los status de
+     * {@code retry.statuses} se tratan como fallo para reintentar; si se agotan los
+     * reintentos o el presupuesto se devuelve la última respuesta del upstream.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> repeated(RouteDescriptor route, ServerHttpRequest request,
+                                                            HttpMethod method, byte[] body, String completeUri,
+                                                            Consumer<HttpHeaders> headersCustomizer) {
+        GatewayProperties.Retry retry = route.getRetry();
+        Mono<ResponseEntity<Flux<DataBuffer>>> single = Mono.defer(() -> attempt(route, request, method,
+                body != null ? Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)) : null,
+                completeUri, headersCustomizer))
+            .flatMap(entity -> retry.getStatuses().contains(entity.getStatusCode().value())
+                ? UpstreamStatusException.raise(entity)
+                : Mono.just(entity));
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = route.getHedge().isEnabled() ? hedged(route, single) : single;
+        return withRetries(call, retry, 0)
+            .onErrorResume(UpstreamStatusException.class, e -> Mono.just(e.toEntity()));
+    }
+
+    private Mono<ResponseEntity<Flux<DataBuffer>>> withRetries(Mono<ResponseEntity<Flux<DataBuffer>>> call,
+                                                               GatewayProperties.Retry retry, int retriesDone) {
+        return call.onErrorResume(e -> {
+            if (retriesDone >= retry.getMaxRetries() || !isRetryable(e) || !retryBudget.tryAcquireRetry()) {
+                return Mono.error(e);
+            }
+            retryBudget.recordRetry();
+            Duration delay = backoff(retry, retriesDone);
+            log.debug("Retrying upstream call in {} ms after: {}", delay.toMillis(), e.toString());
+            return Mono.delay(delay).then(withRetries(call, retry, retriesDone + 1));
+        });
+    }
+
+    /**
+     * Lanza una segunda copia de la llamada si la primera no ha respondido tras el
+     * retardo de hedging; gana la primera respuesta y la otra se cancela. Si una de
+     * las dos falla con la otra aún en marcha se espera a la otra; el error solo
+     * sale cuando han fallado las dos.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> hedged(RouteDescriptor route,
+                                                          Mono<ResponseEntity<Flux<DataBuffer>>> single) {
+        return Mono.defer(() -> {
+            AtomicBoolean decided = new AtomicBoolean();
+            AtomicInteger pending = new AtomicInteger(1);
+            Mono<ResponseEntity<Flux<DataBuffer>>> primary = claim(single, decided, false)
+                .onErrorResume(e -> giveUp(e, decided, pending));
+            Mono<ResponseEntity<Flux<DataBuffer>>> hedge = Mono.defer(() -> {
+                    if (decided.get() || !retryBudget.tryAcquireRetry()) {
+                        return Mono.empty();
+                    }
+                    pending.incrementAndGet();
+                    retryBudget.recordHedge();
+                    return claim(single, decided, true)
+                        .onErrorResume(e -> giveUp(e, decided, pending));
+                })
+                .delaySubscription(hedgeDelay(route));
+            return Flux.merge(primary, hedge).next();
+        });
+    }
+
+    /**
+     * Un intento fallido de una llamada con hedging termina vacío mientras el otro
+     * siga pendiente o ya haya respuesta, y con su error si era el último.
+     */
+    private static Mono<ResponseEntity<Flux<DataBuffer>>> giveUp(Throwable error, AtomicBoolean decided,
+                                                                 AtomicInteger pending) {
+        return pending.decrementAndGet() > 0 || decided.get() ? Mono.empty() : Mono.error(error);
+    }
+
+    /**
+     * Solo la primera respuesta pasa; la que llega después se descarta liberando su body.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> claim(Mono<ResponseEntity<Flux<DataBuffer>>> call,
+                                                         AtomicBoolean decided, boolean hedge) {
+        return call.flatMap(entity -> {
+            if (decided.compareAndSet(false, true)) {
+                if (hedge) {
+                    retryBudget.recordHedgeWin();
+                }
+                return Mono.just(entity);
+            }
+            entity.getBody().doOnNext(DataBufferUtils::release).onErrorResume(e -> Flux.empty()).subscribe();
+            return Mono.empty();
+        });
+    }
+
+    private static Duration hedgeDelay(RouteDescriptor route) {
+        GatewayProperties.Hedge hedge = route.getHedge();
+        long percentile = route.getLatency().percentileNanos(hedge.getPercentile());
+        if (percentile < 0) {
+            return hedge.getMaxDelay();
+        }
+        long nanos = Math.max(hedge.getMinDelay().toNanos(), Math.min(hedge.getMaxDelay().toNanos(), percentile));
+        return Duration.ofNanos(nanos);
+    }
+
+    private static Duration backoff(GatewayProperties.Retry retry, int retriesDone) {
+        long base = Math.min(retry.getMaxBackoff().toMillis(), retry.getBackoff().toMillis() << Math.min(retriesDone, 20));
+        double jitter = retry.getJitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Duration.ofMillis(Math.max(0, Math.round(base * (1 + jitter))));
+    }
+
+    /**
+     * Un intento protegido: límite adaptativo de la ruta (con espera acotada), circuit
+     * breaker de la ruta y bulkhead de su servicio. Los permisos del límite y del
+     * bulkhead se mantienen hasta que termina el body.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> attempt(RouteDescriptor route, ServerHttpRequest request,
+                                                           HttpMethod method, Flux<DataBuffer> body, String completeUri,
+                                                           Consumer<HttpHeaders> headersCustomizer) {
+        AdaptiveLimiter limiter = route.getLimiter();
+        return limiter.acquire().flatMap(admitted -> {
+            if (!admitted) {
+                return Mono.error(new GatewayRejectedException(
+                    "Gateway Error: Too many concurrent requests to backend service", 1));
+            }
+            CircuitBreaker breaker = route.getCircuitBreaker();
+            CircuitBreaker.Permit permit = breaker.tryAcquirePermission();
+            if (permit == null) {
+                limiter.release();
+                return Mono.error(new GatewayRejectedException("Gateway Error: Backend service unavailable",
+                    breaker.retryAfterSeconds()));
+            }
+            Bulkhead bulkhead = route.getBulkhead();
+            if (!bulkhead.tryAcquire()) {
+                breaker.releasePermission(permit);
+                limiter.release();
+                return Mono.error(new GatewayRejectedException(
+                    "Gateway Error: Too many concurrent requests to backend service", 1));
+            }
+            // Con la respuesta ya recibida los permisos son del body: una cancelación
+            // posterior (Flux.merge(...).next() del hedging) no debe liberarlos
+            AtomicBoolean settled = new AtomicBoolean();
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable releasePermits = () -> {
+                if (released.compareAndSet(false, true)) {
+                    bulkhead.release();
+                    limiter.release();
+                }
+            };
+            long start = System.nanoTime();
+            return callUpstream(route, request, method, body, completeUri, headersCustomizer)
+                .doOnNext(entity -> {
+                    settled.set(true);
+                    long elapsed = System.nanoTime() - start;
+                    boolean failure = entity.getStatusCode().is5xxServerError();
+                    breaker.onResult(permit, elapsed, failure);
+                    limiter.onSample(elapsed, failure);
+                    if (!failure) {
+                        route.getLatency().record(elapsed);
+                    }
+                })
+                .doOnError(e -> {
+                    if (findStatusError(e) != null) {
+                        // Error de la petición del cliente (por ejemplo 413), no del upstream
+                        breaker.releasePermission(permit);
+                    } else {
+                        long elapsed = System.nanoTime() - start;
+                        breaker.onResult(permit, elapsed, true);
+                        limiter.onSample(elapsed, true);
+                    }
+                    releasePermits.run();
+                })
+                .doOnCancel(() -> {
+                    if (!settled.get()) {
+                        breaker.releasePermission(permit);
+                        releasePermits.run();
+                    }
+                })
+                .map(entity -> new ResponseEntity<>(
+                    entity.getBody().doFinally(signal -> releasePermits.run()),
+                    entity.getHeaders(), entity.getStatusCode()));
+        });
+    }
+
+    /**
+     * Envía la petición y emite en cuanto llegan los headers de la respuesta; el body
+     * queda como stream sin consumir. Todos los status se devuelven tal cual.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> callUpstream(RouteDescriptor route, ServerHttpRequest request,
+                                                                HttpMethod method, Flux<DataBuffer> body, String completeUri,
+                                                                Consumer<HttpHeaders> headersCustomizer) {
+        WebClient.RequestBodySpec spec = route.getWebClient().method(method)
+            .uri(completeUri)
+            .headers(h -> {
+                copyHeaders(request.getHeaders(), h);
+                if (headersCustomizer != null) {
+                    headersCustomizer.accept(h);
+                }
+            });
+        if (route.getResponseTimeout() != null) {
+            spec = spec.httpRequest(r -> r.<HttpClientRequest>getNativeRequest().responseTimeout(route.getResponseTimeout()));
+        }
+        WebClient.RequestHeadersSpec<?> requestSpec = body != null
+            ? spec.body(BodyInserters.fromDataBuffers(body))
+            : spec;
+        return requestSpec.retrieve()
+            .onStatus(status -> true, clientResponse -> Mono.empty())
+            .toEntityFlux(DataBuffer.class);
+    }
+
+    /**
+     * Body de la petición como stream, que falla con 413 en cuanto se han visto más
+     * de {@code max-body-bytes} de la ruta. Los buffers descartados por una
+     * suscripción cancelada o fallida se liberan.
+     */
+    private static Flux<DataBuffer> limitedBody(ServerHttpRequest request, long maxBodyBytes) {
+        Flux<DataBuffer> body = request.getBody();
+        if (maxBodyBytes >= 0) {
+            body = Flux.defer(() -> {
+                AtomicLong received = new AtomicLong();
+                return request.getBody().handle((buffer, sink) -> {
+                    if (received.addAndGet(buffer.readableByteCount()) > maxBodyBytes) {
+                        DataBufferUtils.release(buffer);
+                        sink.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                            "Gateway Error: Request body too large"));
+                    } else {
+                        sink.next(buffer);
+                    }
+                });
+            });
+        }
+        return body.doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private static Mono<Void> writeResponse(ServerHttpResponse response, HttpStatusCode status,
+                                            HttpHeaders headers, Flux<DataBuffer> body) {
+        response.setStatusCode(status);
+        copyHeaders(headers, response.getHeaders());
+        return response.writeWith(body);
+    }
+
+    private static Mono<Void> writeCached(ServerHttpRequest request, ServerHttpResponse response,
+                                          CachedResponse cached, String cacheStatus) {
+        HttpHeaders headers = response.getHeaders();
+        copyHeaders(cached.getHeaders(), headers);
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        headers.set(HttpHeaders.AGE, Long.toString(Math.max(0, (System.currentTimeMillis() - cached.getStoredAtMillis()) / 1000)));
+        if (cached.getEtag() != null && request.getHeaders().getIfNoneMatch().contains(cached.getEtag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.getStatus());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private Mono<Void> handleError(ServerHttpResponse response, RouteDescriptor route, HttpMethod method, Throwable e) {
+        if (response.isCommitted()) {
+            // La respuesta ya empezó a enviarse, solo se puede abortar la conexión
+            log.error("Error streaming {} response from backend: {}", method, e.getMessage());
+            return Mono.error(e);
+        }
+        if (e instanceof GatewayRejectedException) {
+            GatewayRejectedException rejected = (GatewayRejectedException) e;
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(rejected.getRetryAfterSeconds()));
+            return writeError(response, rejected.getStatusCode(), rejected.getReason());
+        }
+        if (isTimeout(e)) {
+            log.warn("Timeout forwarding {} request to {}", method, route.getId());
+            return writeError(response, HttpStatus.GATEWAY_TIMEOUT, "Gateway Error: Backend service timed out");
+        }
+        ResponseStatusException statusError = findStatusError(e);
+        if (statusError != null) {
+            return writeError(response, statusError.getStatusCode(),
+                statusError.getReason() != null ? statusError.getReason() : UNREACHABLE);
+        }
+        log.error("Error forwarding " + method + " request: ", e);
+        return writeError(response, HttpStatus.INTERNAL_SERVER_ERROR, UNREACHABLE);
+    }
+
+    private static String buildCompleteUri(String path, String queryString) {
+        if (queryString != null && !queryString.isEmpty()) {
+            return path + "?" + queryString;
+        }
+        return path;
+    }
+
+    private static void copyHeaders(HttpHeaders source, HttpHeaders target) {
+        source.forEach((name, values) -> {
+            if (!isHopByHop(name)) {
+                target.put(name, values);
+            }
+        });
+    }
+
+    private static boolean isHopByHop(String headerName) {
+        for (String hopByHop : HOP_BY_HOP_HEADERS) {
+            if (hopByHop.equalsIgnoreCase(headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIdempotent(HttpMethod method) {
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS
+            || method == HttpMethod.PUT || method == HttpMethod.DELETE;
+    }
+
+    /**
+     * Se reintentan los status configurados y los errores de conexión o timeout; no
+     * los rechazos del propio gateway ni los errores de la petición del cliente.
+     */
+    private static boolean isRetryable(Throwable e) {
+        return e instanceof UpstreamStatusException || findStatusError(e) == null;
+    }
+
+    private static byte[] toBytes(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException || t instanceof java.util.concurrent.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseStatusException findStatusError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ResponseStatusException) {
+                return (ResponseStatusException) t;
+            }
+        }
+        return null;
+    }
+
+    private static Mono<Void> writeError(ServerHttpResponse response, HttpStatusCode status, String message) {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    /**
+     * Respuesta del upstream con un status reintentable. Guarda el body (hasta
+     * {@value #MAX_BODY_BYTES} bytes) para devolverla si no quedan reintentos.
+     */
+    private static final class UpstreamStatusException extends RuntimeException {
+
+        private static final int MAX_BODY_BYTES = 64 * 1024;
+
+        private final HttpStatusCode status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        private UpstreamStatusException(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            super("Upstream responded " + status.value(), null, false, false);
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * Falla con la respuesta guardada para que se reintente. Si el body supera
+         * {@value #MAX_BODY_BYTES} bytes no se guarda: se emite la respuesta tal cual,
+         * con lo ya leído seguido del resto del stream, y no se reintenta.
+         */
+        static Mono<ResponseEntity<Flux<DataBuffer>>> raise(ResponseEntity<Flux<DataBuffer>> entity) {
+            long contentLength = entity.getHeaders().getContentLength();
+            if (contentLength > MAX_BODY_BYTES) {
+                return Mono.just(entity);
+            }
+            AtomicLong size = new AtomicLong();
+            return entity.getBody()
+                .bufferUntil(buffer -> size.addAndGet(buffer.readableByteCount()) > MAX_BODY_BYTES)
+                .switchOnFirst((first, chunks) -> {
+                    Flux<DataBuffer> buffers = chunks.concatMapIterable(chunk -> chunk);
+                    if (size.get() > MAX_BODY_BYTES) {
+                        // El stream sigue abierto (cancelSourceOnComplete = false) hasta que se escriba
+                        return Mono.just(new ResponseEntity<>(buffers, entity.getHeaders(), entity.getStatusCode()));
+                    }
+                    return DataBufferUtils.join(buffers)
+                        .map(GatewayService::toBytes)
+                        .defaultIfEmpty(new byte[0])
+                        .flatMap(bytes -> {
+                            HttpHeaders headers = new HttpHeaders();
+                            headers.addAll(entity.getHeaders());
+                            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                            headers.setContentLength(bytes.length);
+                            return Mono.<ResponseEntity<Flux<DataBuffer>>>error(
+                                new UpstreamStatusException(entity.getStatusCode(), headers, bytes));
+                        });
+                }, false)
+                .singleOrEmpty();
+        }
+
+        ResponseEntity<Flux<DataBuffer>> toEntity() {
+            return new ResponseEntity<>(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))),
+                headers, status);
+        }
+    }
+}
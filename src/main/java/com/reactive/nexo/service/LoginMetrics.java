@@ -0,0 +1,74 @@
+package com.reactive.nexo.service;
+
+import com.reactive.nexo.gateway.LatencyTracker;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencia del login por fase: autenticación contra el módulo de empleados,
+ * verificación 2FA y firma del token.
+ */
+@Component
+public class LoginMetrics {
+
+    public enum Phase { AUTH, TWO_FACTOR, SIGNING }
+
+    private final Map<Phase, PhaseStats> phases = new LinkedHashMap<>();
+    private final LongAdder succeeded = new LongAdder();
+
+    public LoginMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new PhaseStats());
+        }
+    }
+
+    public void record(Phase phase, long durationNanos) {
+        PhaseStats stats = phases.get(phase);
+        stats.count.increment();
+        stats.totalNanos.add(durationNanos);
+        stats.latency.record(durationNanos);
+    }
+
+    /** Login que terminó con error en la fase indicada. */
+    public void failed(Phase phase) {
+        phases.get(phase).failures.increment();
+    }
+
+    public void succeeded() {
+        succeeded.increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("succeeded", succeeded.sum());
+        phases.forEach((phase, stats) -> snapshot.put(phase.name().toLowerCase(), stats.snapshot()));
+        return snapshot;
+    }
+
+    private static final class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencyTracker latency = new LatencyTracker();
+
+        private Map<String, Object> snapshot() {
+            long samples = count.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("count", samples);
+            snapshot.put("failures", failures.sum());
+            snapshot.put("avgMicros", samples == 0 ? 0 : totalNanos.sum() / samples / 1_000);
+            // -1 mientras no haya muestras suficientes en el último minuto
+            snapshot.put("p50Micros", micros(latency.percentileNanos(50)));
+            snapshot.put("p95Micros", micros(latency.percentileNanos(95)));
+            snapshot.put("p99Micros", micros(latency.percentileNanos(99)));
+            return snapshot;
+        }
+
+        private static long micros(long nanos) {
+            return nanos < 0 ? -1 : nanos / 1_000;
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.reactive.nexo.service;
 
 import org.springframework.web.server.ServerWebExchange;
 import com.reactive.nexo.client.EmployeeClient;
+import com.reactive.nexo.client.EmployeeProfileCache;
 import com.reactive.nexo.dto.LoginRequest;
 import com.reactive.nexo.dto.LoginResponse;
+import com.reactive.nexo.security.RolePermissionTable;
 import com.reactive.nexo.util.JwtUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import org.springframework.http.HttpHeaders;
@@ -17,8 +20,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import com.reactive.nexo.util.TwoFactorUtil;
+import com.reactive.nexo.util.TotpVerifier;
 import org.springframework.web.server.ResponseStatusException;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -30,9 +34,25 @@ public class SessionService {
     @Autowired
     private EmployeeClient employeeClient;
 
+    @Autowired
+    private EmployeeProfileCache employeeProfileCache;
+
+    @Autowired
+    private LoginMetrics loginMetrics;
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private RolePermissionTable rolePermissionTable;
+
+    @Autowired
+    private TotpVerifier totpVerifier;
+
+    /** Emite tokens compactos (rol + versión de permisos) en lugar de tokens con la lista de permisos. */
+    @Value("${jwt.compact-tokens:false}")
+    private boolean compactTokens;
+
     /**
      * Authenticate user by calling EmployeeClient to validate credentials and get roles/permisos
      */
@@ -42,8 +62,13 @@ public class SessionService {
                 request.getIdentification_type(), request.getIdentification_number());
 
         // Forward authentication request to employees module (or use mock if enabled)
-        return employeeClient.authenticate(request)
-                .flatMap(authResponse -> {
+        return employeeProfileCache.authenticate(request)
+                .timed()
+                .doOnError(err -> loginMetrics.failed(LoginMetrics.Phase.AUTH))
+                .flatMap(timed -> {
+                    AuthResponse authResponse = timed.get();
+                    loginMetrics.record(LoginMetrics.Phase.AUTH, timed.elapsed().toNanos());
+                    long authenticated = System.nanoTime();
                     // Generate JWT token with user info and permissions
 
                     String employeeId = authResponse.getId().toString();
@@ -61,10 +86,11 @@ public class SessionService {
                     } 
                 
                     // *** Validación real del código 2FA usando el secreto del usuario ***
-                    logger.info("SessionService.saveTwoFactorSecret - Fetching employee to update 2FA secret for user: {}/{}",request.getTwoFA(), authResponse.getSecret());
+                    logger.debug("SessionService.login - Verifying 2FA code for employee: {}", employeeId);
                     if(authResponse.getSecret() != null) {
-                        if (!TwoFactorUtil.validateCode(authResponse.getSecret(), request.getTwoFA())) {    
+                        if (!totpVerifier.verify(employeeId, authResponse.getSecret(), request.getTwoFA())) {    
                             logger.info("SessionService.saveTwoFactorSecret - No 2FA secret is INVALID");
+                            loginMetrics.failed(LoginMetrics.Phase.TWO_FACTOR);
                             return Mono.<LoginResponse>error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "2FA code is required"));
                         } else {
                             logger.info("SessionService.saveTwoFactorSecret - No 2FA secret VALID");      
@@ -77,12 +103,30 @@ public class SessionService {
                         authResponse.setPermissions(null);*/
                     }
 
-                    String token = jwtUtil.generateToken(
-                            authResponse.getId(),
-                            ipAddress,
-                            userAgent,
-                            authResponse.getPermissions()
-                    );
+                    long verified = System.nanoTime();
+                    loginMetrics.record(LoginMetrics.Phase.TWO_FACTOR, verified - authenticated);
+
+                    String token;
+                    if (compactTokens && authResponse.getRol_id() != null) {
+                        String permissionVersion = rolePermissionTable.register(authResponse.getRol_id(),
+                                (List<Map<String, Object>>) (List<?>) authResponse.getPermissions());
+                        token = jwtUtil.generateCompactToken(
+                                authResponse.getId(),
+                                ipAddress,
+                                userAgent,
+                                authResponse.getRol_id(),
+                                permissionVersion
+                        );
+                    } else {
+                        token = jwtUtil.generateToken(
+                                authResponse.getId(),
+                                ipAddress,
+                                userAgent,
+                                authResponse.getPermissions()
+                        );
+                    }
+
+                    loginMetrics.record(LoginMetrics.Phase.SIGNING, System.nanoTime() - verified);
 
                     LoginResponse response = new LoginResponse(
                             token,
@@ -113,6 +157,7 @@ public class SessionService {
                             })
                             .then(Mono.empty());
                     }
+                    loginMetrics.succeeded();
                     log.info("SessionService.login - Login successful for user id: {}", authResponse.getId());
                     return Mono.just(response);
                 });
@@ -121,14 +166,19 @@ public class SessionService {
     public Mono<Boolean> saveTwoFactorSecret(ServerWebExchange exchange, String identificationType, String identificationNumber, String newSecret) {
         logger.info("SessionService.saveTwoFactorSecret - Fetching employee to update 2FA secret for user: {}/{}", identificationType, identificationNumber);
         
-        return employeeClient.getEmployee(identificationType, identificationNumber)
+        return employeeProfileCache.getEmployee(identificationType, identificationNumber)
             .flatMap(response -> {
                 logger.info("SessionService.saveTwoFactorSecret - Fetched employee ID from response: {}", response.getId());
 
                 String employeeId = exchange.getRequest().getHeaders().getFirst("x-employee-id");
                 logger.info("SessionService.saveTwoFactorSecret - Fetched employee: {}", employeeId);
                 if(response != null && response.getId().equals(employeeId)) {
-                    return employeeClient.updateTwoFactorSecret(employeeId, newSecret);
+                    return employeeClient.updateTwoFactorSecret(employeeId, newSecret)
+                        .doOnNext(updated -> {
+                            if (updated) {
+                                employeeProfileCache.invalidate(identificationType, identificationNumber);
+                            }
+                        });
                 }
                 return Mono.just(true); 
             })
@@ -140,6 +190,7 @@ public class SessionService {
 
     public Mono<Boolean> resetPassword(String identificationType, String identificationNumber) {
         logger.info("SessionService.resetPassword - Resetting password for user: {}/{}", identificationType, identificationNumber);        
-        return employeeClient.resetPassword(identificationType, identificationNumber);
+        return employeeClient.resetPassword(identificationType, identificationNumber)
+                .doOnNext(reset -> employeeProfileCache.invalidate(identificationType, identificationNumber));
     }
 }
@@ -0,0 +1,282 @@
+package com.reactive.nexo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mantenimiento de las particiones de la tabla tracking.
+ * <p>
+ * En PostgreSQL la tabla está particionada por rango de {@code created_at}
+ * (ver schema.sql). Cada {@code check-interval} se crean las particiones del
+ * periodo actual y de los {@code ahead} siguientes, de un día o de un mes, y las
+ * que quedan enteras antes de {@code retention} se borran o se separan de la tabla
+ * (DETACH) para archivarlas. Las filas que caen en la partición por defecto, como
+ * los datos de ejemplo o las escritas antes de crear la partición de su periodo, se
+ * mueven a la nueva partición al crearla y se borran con DELETE al expirar.
+ * <p>
+ * Si la tabla no está particionada (otra base de datos o un esquema antiguo), la
+ * retención se aplica con un DELETE por fecha.
+ */
+@Component
+@Slf4j
+public class TrackingPartitionManager {
+
+    public enum Interval { DAY, MONTH }
+
+    public enum ExpiredPolicy { DROP, DETACH }
+
+    private static final String TABLE = "tracking";
+    private static final String PREFIX = TABLE + "_p";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    /** Columnas que se copian al mover filas; search_vector es generada y no se escribe. */
+    private static final String COLUMNS = "id, created_at, employee_id, action, data, result";
+    private static final DateTimeFormatter DAY_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String IS_PARTITIONED = "SELECT COUNT(*) FROM pg_partitioned_table pt "
+            + "JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = '" + TABLE + "'";
+    private static final String PARTITIONS = "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+            + "WHERE p.relname = '" + TABLE + "'";
+
+    private final DatabaseClient databaseClient;
+    private final boolean enabled;
+    private final Interval interval;
+    private final int ahead;
+    private final Duration retention;
+    private final ExpiredPolicy expired;
+    private final Duration checkInterval;
+    private Disposable maintainer;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder detached = new LongAdder();
+    private final LongAdder deletedRows = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile Boolean partitioned;
+    private volatile int partitions;
+    private volatile LocalDateTime lastRun;
+    private volatile String lastError;
+
+    public TrackingPartitionManager(DatabaseClient databaseClient,
+                                    @Value("${tracking.partitions.enabled:true}") boolean enabled,
+                                    @Value("${tracking.partitions.interval:DAY}") Interval interval,
+                                    @Value("${tracking.partitions.ahead:3}") int ahead,
+                                    @Value("${tracking.partitions.retention:90d}") Duration retention,
+                                    @Value("${tracking.partitions.expired:DROP}") ExpiredPolicy expired,
+                                    @Value("${tracking.partitions.check-interval:1h}") Duration checkInterval) {
+        this.databaseClient = databaseClient;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.ahead = Math.max(0, ahead);
+        this.retention = retention;
+        this.expired = expired;
+        this.checkInterval = checkInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        maintainer = Flux.interval(Duration.ZERO, checkInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> maintain().onErrorResume(e -> {
+                    failures.increment();
+                    lastError = e.getMessage();
+                    log.warn("Cannot maintain tracking partitions: {}", e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+        log.info("Tracking partitions: {} ahead {}, retention {}, expired partitions {}",
+                interval, ahead, retention.isZero() ? "unlimited" : retention, expired);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (maintainer != null) {
+            maintainer.dispose();
+        }
+    }
+
+    /**
+     * Una pasada: crea las particiones que faltan y aplica la retención.
+     */
+    public Mono<Void> maintain() {
+        return isPartitioned()
+                .flatMap(isPartitioned -> {
+                    partitioned = isPartitioned;
+                    return isPartitioned ? maintainPartitions() : deleteExpired(TABLE);
+                })
+                .doOnSuccess(done -> {
+                    runs.increment();
+                    lastRun = LocalDateTime.now();
+                });
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("partitioned", partitioned);
+        snapshot.put("interval", interval);
+        snapshot.put("ahead", ahead);
+        snapshot.put("retention", retention.isZero() ? null : retention.toString());
+        snapshot.put("expired", expired);
+        snapshot.put("partitions", partitions);
+        snapshot.put("runs", runs.sum());
+        snapshot.put("created", created.sum());
+        snapshot.put("dropped", dropped.sum());
+        snapshot.put("detached", detached.sum());
+        snapshot.put("deletedRows", deletedRows.sum());
+        snapshot.put("failures", failures.sum());
+        snapshot.put("lastRun", lastRun);
+        snapshot.put("lastError", lastError);
+        return snapshot;
+    }
+
+    private Mono<Boolean> isPartitioned() {
+        if (!databaseClient.getConnectionFactory().getMetadata().getName().contains("PostgreSQL")) {
+            return Mono.just(false);
+        }
+        return databaseClient.sql(IS_PARTITIONED)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .map(count -> count > 0);
+    }
+
+    private Mono<Void> maintainPartitions() {
+        return databaseClient.sql(PARTITIONS)
+                .map((row, metadata) -> row.get(0, String.class))
+                .all()
+                .collect(HashSet<String>::new, Set::add)
+                .flatMap(existing -> {
+                    LocalDate current = periodStart(LocalDate.now());
+                    List<LocalDate> missing = new ArrayList<>();
+                    for (int offset = 0; offset <= ahead; offset++) {
+                        LocalDate start = next(current, offset);
+                        if (!existing.contains(name(start))) {
+                            missing.add(start);
+                        }
+                    }
+                    List<String> expiredPartitions = existing.stream().filter(this::isExpired).toList();
+                    return Flux.fromIterable(missing).concatMap(this::create)
+                            .thenMany(Flux.fromIterable(expiredPartitions).concatMap(this::expire))
+                            .then(existing.contains(DEFAULT_PARTITION) ? deleteExpired(DEFAULT_PARTITION) : Mono.empty())
+                            .doOnSuccess(done -> partitions = existing.size() + missing.size() - expiredPartitions.size());
+                });
+    }
+
+    /**
+     * Crea la partición del periodo que empieza en {@code start}. Las filas que ya
+     * hubiera en la partición por defecto para ese periodo se mueven a la nueva, que
+     * se adjunta después; al ir en una sola sentencia sin parámetros, PostgreSQL lo
+     * ejecuta todo en una transacción.
+     */
+    private Mono<Void> create(LocalDate start) {
+        String partition = name(start);
+        String from = "'" + start.atStartOfDay().format(BOUND) + "'";
+        String to = "'" + next(start, 1).atStartOfDay().format(BOUND) + "'";
+        String sql = "CREATE TABLE " + partition + " (LIKE " + TABLE
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED);"
+                + " WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                + " WHERE created_at >= " + from + " AND created_at < " + to + " RETURNING " + COLUMNS + ")"
+                + " INSERT INTO " + partition + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM moved;"
+                + " ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition + " FOR VALUES FROM (" + from + ") TO (" + to + ")";
+        return databaseClient.sql(sql)
+                .then()
+                .doOnSuccess(done -> {
+                    created.increment();
+                    log.info("Created tracking partition {}", partition);
+                });
+    }
+
+    private Mono<Void> expire(String partition) {
+        String sql = expired == ExpiredPolicy.DETACH
+                ? "ALTER TABLE " + TABLE + " DETACH PARTITION " + partition
+                : "DROP TABLE " + partition;
+        return databaseClient.sql(sql)
+                .then()
+                .doOnSuccess(done -> {
+                    (expired == ExpiredPolicy.DETACH ? detached : dropped).increment();
+                    log.info("{} expired tracking partition {}", expired == ExpiredPolicy.DETACH ? "Detached" : "Dropped", partition);
+                });
+    }
+
+    private Mono<Void> deleteExpired(String table) {
+        if (retention.isZero() || retention.isNegative()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("DELETE FROM " + table + " WHERE created_at < :cutoff")
+                .bind("cutoff", LocalDateTime.now().minus(retention))
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(rows -> {
+                    deletedRows.add(rows);
+                    if (rows > 0) {
+                        log.info("Deleted {} expired tracking rows from {}", rows, table);
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * La partición ha expirado si su periodo termina antes del límite de retención.
+     * El periodo sale del nombre, así que cambiar {@code interval} no deja huérfanas
+     * las particiones existentes.
+     */
+    private boolean isExpired(String partition) {
+        if (retention.isZero() || retention.isNegative() || !partition.startsWith(PREFIX)) {
+            return false;
+        }
+        String suffix = partition.substring(PREFIX.length());
+        LocalDate end;
+        try {
+            if (suffix.length() == 8) {
+                end = LocalDate.parse(suffix, DAY_SUFFIX).plusDays(1);
+            } else if (suffix.length() == 6) {
+                end = LocalDate.parse(suffix + "01", DAY_SUFFIX).plusMonths(1);
+            } else {
+                return false;
+            }
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+        return !end.atStartOfDay().isAfter(LocalDateTime.now().minus(retention));
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return interval == Interval.MONTH ? date.withDayOfMonth(1) : date;
+    }
+
+    private LocalDate next(LocalDate start, long periods) {
+        return start.plus(periods, interval == Interval.MONTH ? ChronoUnit.MONTHS : ChronoUnit.DAYS);
+    }
+
+    private String name(LocalDate start) {
+        String suffix = start.format(DAY_SUFFIX);
+        return PREFIX + (interval == Interval.MONTH ? suffix.substring(0, 6) : suffix);
+    }
+}
@@ -0,0 +1,456 @@
+package com.reactive.nexo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agregados del tracking por minuto, hora y día: peticiones, errores y suma y
+ * máximo de latencia, por acción, empleado, endpoint y en total.
+ * <p>
+ * Cada evento suma en una celda en memoria por dimensión, valor y minuto, con
+ * contadores {@link LongAdder}, así que registrar no bloquea ni toca la base de
+ * datos. Cada {@code flush-interval} las celdas de minutos ya cerrados se agrupan
+ * por minuto, hora y día y se acumulan en la tabla {@code tracking_rollup} con un
+ * upsert por lote. Las filas de un lote que falla se guardan y se vuelven a
+ * escribir en el siguiente flush. Las consultas leen la tabla y suman las celdas
+ * y filas aún en memoria, de modo que los datos del último minuto también aparecen.
+ */
+@Component
+@Slf4j
+public class TrackingRollups {
+
+    public enum Granularity { MINUTE, HOUR, DAY }
+
+    public enum Dimension { ACTION, EMPLOYEE, ENDPOINT, TOTAL }
+
+    /** Valor de las celdas que no caben en memoria, para no perder los totales. */
+    public static final String OTHER = "(other)";
+
+    private static final String TOTAL = "*";
+    private static final int UPSERT_BATCH = 500;
+    private static final String UPSERT = "INSERT INTO tracking_rollup "
+            + "(granularity, bucket, dimension, dimension_value, requests, errors, latency_sum, latency_max) VALUES ";
+    private static final String ON_CONFLICT = " ON CONFLICT (granularity, dimension, bucket, dimension_value) DO UPDATE SET "
+            + "requests = tracking_rollup.requests + EXCLUDED.requests, "
+            + "errors = tracking_rollup.errors + EXCLUDED.errors, "
+            + "latency_sum = tracking_rollup.latency_sum + EXCLUDED.latency_sum, "
+            + "latency_max = GREATEST(tracking_rollup.latency_max, EXCLUDED.latency_max)";
+    private static final String MERGE = "MERGE INTO tracking_rollup t USING (VALUES ";
+    private static final String MERGE_ON = ") AS s (granularity, bucket, dimension, dimension_value, requests, errors, latency_sum, latency_max) "
+            + "ON t.granularity = s.granularity AND t.dimension = s.dimension AND t.bucket = s.bucket "
+            + "AND t.dimension_value = s.dimension_value "
+            + "WHEN MATCHED THEN UPDATE SET requests = t.requests + s.requests, errors = t.errors + s.errors, "
+            + "latency_sum = t.latency_sum + s.latency_sum, latency_max = GREATEST(t.latency_max, s.latency_max) "
+            + "WHEN NOT MATCHED THEN INSERT (granularity, bucket, dimension, dimension_value, requests, errors, latency_sum, latency_max) "
+            + "VALUES (s.granularity, s.bucket, s.dimension, s.dimension_value, s.requests, s.errors, s.latency_sum, s.latency_max)";
+
+    private final DatabaseClient databaseClient;
+    private final boolean enabled;
+    private final int maxCells;
+    private final Duration flushInterval;
+    private final Map<Granularity, Duration> retention = new LinkedHashMap<>();
+    private final Map<CellKey, Cell> cells = new ConcurrentHashMap<>();
+    /** Filas de lotes que no se pudieron escribir, pendientes del siguiente flush. */
+    private final Map<RowKey, Cell> unwritten = new ConcurrentHashMap<>();
+    private Disposable flusher;
+    private Disposable cleaner;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder flushedCells = new LongAdder();
+    private final LongAdder upsertedRows = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder lostRows = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+
+    public TrackingRollups(DatabaseClient databaseClient,
+                           @Value("${tracking.rollups.enabled:true}") boolean enabled,
+                           @Value("${tracking.rollups.max-cells:50000}") int maxCells,
+                           @Value("${tracking.rollups.flush-interval:10s}") Duration flushInterval,
+                           @Value("${tracking.rollups.retention.minute:2d}") Duration minuteRetention,
+                           @Value("${tracking.rollups.retention.hour:90d}") Duration hourRetention,
+                           @Value("${tracking.rollups.retention.day:730d}") Duration dayRetention) {
+        this.databaseClient = databaseClient;
+        this.enabled = enabled;
+        this.maxCells = Math.max(1, maxCells);
+        this.flushInterval = flushInterval;
+        retention.put(Granularity.MINUTE, minuteRetention);
+        retention.put(Granularity.HOUR, hourRetention);
+        retention.put(Granularity.DAY, dayRetention);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Flux.interval(flushInterval, flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush(false).onErrorResume(e -> {
+                    failures.increment();
+                    log.warn("Cannot flush tracking rollups: {}", e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+        cleaner = Flux.interval(Duration.ofMinutes(1), Duration.ofHours(1))
+                .onBackpressureDrop()
+                .concatMap(tick -> deleteExpired().onErrorResume(e -> {
+                    log.warn("Cannot delete expired tracking rollups: {}", e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+        log.info("Tracking rollups flushed every {}, up to {} cells in memory", flushInterval, maxCells);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+            cleaner.dispose();
+            // Lo pendiente, incluido el minuto en curso
+            flush(true).onErrorResume(e -> {
+                log.warn("Tracking rollups lost on shutdown: {}", e.getMessage());
+                return Mono.empty();
+            }).block(Duration.ofSeconds(10));
+        }
+    }
+
+    /**
+     * Suma un evento ahora. {@code endpoint} y {@code employeeId} pueden ser null;
+     * {@code latencyMillis} negativo si no se conoce.
+     */
+    public void record(String action, Long employeeId, String endpoint, boolean error, long latencyMillis) {
+        if (!enabled) {
+            return;
+        }
+        recorded.increment();
+        long minute = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+        add(Dimension.TOTAL, TOTAL, minute, error, latencyMillis);
+        if (action != null) {
+            add(Dimension.ACTION, action, minute, error, latencyMillis);
+        }
+        if (employeeId != null) {
+            add(Dimension.EMPLOYEE, employeeId.toString(), minute, error, latencyMillis);
+        }
+        if (endpoint != null) {
+            add(Dimension.ENDPOINT, endpoint, minute, error, latencyMillis);
+        }
+    }
+
+    /**
+     * Serie temporal de una dimensión entre {@code from} (incluido) y {@code to}
+     * (excluido), ordenada por bucket y valor. Con {@code values} vacío, todos los
+     * valores de la dimensión.
+     */
+    public Flux<Map<String, Object>> query(Dimension dimension, Granularity granularity, LocalDateTime from,
+                                           LocalDateTime to, Collection<String> values, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT bucket, dimension_value, requests, errors, latency_sum, latency_max "
+                + "FROM tracking_rollup WHERE granularity = :granularity AND dimension = :dimension "
+                + "AND bucket >= :from AND bucket < :to");
+        List<String> filter = new ArrayList<>(values);
+        if (!filter.isEmpty()) {
+            sql.append(" AND dimension_value IN (:values)");
+        }
+        sql.append(" ORDER BY bucket, dimension_value LIMIT :limit");
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("granularity", granularity.name())
+                .bind("dimension", dimension.name())
+                .bind("from", from)
+                .bind("to", to)
+                .bind("limit", limit);
+        if (!filter.isEmpty()) {
+            spec = spec.bind("values", filter);
+        }
+        return spec.map((row, metadata) -> new Point(row.get(0, LocalDateTime.class), row.get(1, String.class),
+                        row.get(2, Long.class), row.get(3, Long.class), row.get(4, Long.class), row.get(5, Long.class)))
+                .all()
+                .collect(() -> new TreeMap<PointKey, Point>(), (series, point) -> series.put(point.key(), point))
+                .flatMapMany(series -> {
+                    // Celdas aún no escritas en la tabla
+                    cells.forEach((key, cell) -> {
+                        LocalDateTime bucket = truncate(key.minute, granularity);
+                        if (key.dimension == dimension && !bucket.isBefore(from) && bucket.isBefore(to)
+                                && (filter.isEmpty() || filter.contains(key.value))) {
+                            series.merge(new PointKey(bucket, key.value), cell.toPoint(bucket, key.value), Point::plus);
+                        }
+                    });
+                    unwritten.forEach((key, cell) -> {
+                        if (key.granularity == granularity && key.dimension == dimension && !key.bucket.isBefore(from)
+                                && key.bucket.isBefore(to) && (filter.isEmpty() || filter.contains(key.value))) {
+                            series.merge(new PointKey(key.bucket, key.value), cell.toPoint(key.bucket, key.value), Point::plus);
+                        }
+                    });
+                    return Flux.fromIterable(series.values()).take(limit);
+                })
+                .map(Point::toMap);
+    }
+
+    public Map<String, Object> snapshot() {
+        long flushCount = flushes.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("cells", cells.size());
+        snapshot.put("maxCells", maxCells);
+        snapshot.put("recorded", recorded.sum());
+        snapshot.put("overflowed", overflowed.sum());
+        snapshot.put("flushes", flushCount);
+        snapshot.put("flushedCells", flushedCells.sum());
+        snapshot.put("upsertedRows", upsertedRows.sum());
+        snapshot.put("failures", failures.sum());
+        snapshot.put("unwrittenRows", unwritten.size());
+        snapshot.put("lostRows", lostRows.sum());
+        snapshot.put("avgFlushMicros", flushCount == 0 ? 0 : flushNanos.sum() / flushCount / 1_000);
+        Map<String, Object> retentions = new LinkedHashMap<>();
+        retention.forEach((granularity, duration) -> retentions.put(granularity.name().toLowerCase(), duration.toString()));
+        snapshot.put("retention", retentions);
+        return snapshot;
+    }
+
+    private void add(Dimension dimension, String value, long minute, boolean error, long latencyMillis) {
+        CellKey key = new CellKey(dimension, value, minute);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            if (cells.size() >= maxCells) {
+                // Sin sitio: se suma al valor comodín de la dimensión
+                overflowed.increment();
+                key = new CellKey(dimension, OTHER, minute);
+            }
+            cell = cells.computeIfAbsent(key, k -> new Cell());
+        }
+        cell.add(error, latencyMillis);
+    }
+
+    /**
+     * Escribe y saca de memoria las celdas de minutos cerrados; con {@code all},
+     * también las del minuto en curso. Se deja un minuto de margen para que ningún
+     * productor siga sumando en una celda ya escrita. Se reintentan las filas que
+     * quedaron sin escribir; si un lote falla se intentan los demás y sus filas
+     * vuelven a {@code unwritten}.
+     */
+    private Mono<Void> flush(boolean all) {
+        return Mono.defer(() -> {
+            long current = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+            Map<RowKey, Cell> rows = new HashMap<>();
+            for (Map.Entry<RowKey, Cell> entry : unwritten.entrySet()) {
+                if (unwritten.remove(entry.getKey(), entry.getValue())) {
+                    rows.computeIfAbsent(entry.getKey(), k -> new Cell()).merge(entry.getValue());
+                }
+            }
+            int removed = 0;
+            for (Map.Entry<CellKey, Cell> entry : cells.entrySet()) {
+                CellKey key = entry.getKey();
+                if (!all && key.minute >= current - 1) {
+                    continue;
+                }
+                if (cells.remove(key, entry.getValue())) {
+                    removed++;
+                    for (Granularity granularity : Granularity.values()) {
+                        RowKey row = new RowKey(granularity, truncate(key.minute, granularity), key.dimension, key.value);
+                        rows.computeIfAbsent(row, k -> new Cell()).merge(entry.getValue());
+                    }
+                }
+            }
+            if (rows.isEmpty()) {
+                return Mono.empty();
+            }
+            flushedCells.add(removed);
+            long started = System.nanoTime();
+            List<Map.Entry<RowKey, Cell>> entries = new ArrayList<>(rows.entrySet());
+            return Flux.range(0, (entries.size() + UPSERT_BATCH - 1) / UPSERT_BATCH)
+                    .map(batch -> entries.subList(batch * UPSERT_BATCH, Math.min(entries.size(), (batch + 1) * UPSERT_BATCH)))
+                    .concatMapDelayError(batch -> upsert(batch).doOnError(e -> requeue(batch)))
+                    .then()
+                    .doOnSuccess(done -> {
+                        flushes.increment();
+                        upsertedRows.add(entries.size());
+                        flushNanos.add(System.nanoTime() - started);
+                    });
+        });
+    }
+
+    /**
+     * Devuelve a memoria las filas de un lote no escrito, salvo las que ya no caben.
+     */
+    private void requeue(List<Map.Entry<RowKey, Cell>> batch) {
+        for (Map.Entry<RowKey, Cell> entry : batch) {
+            Cell pending = unwritten.get(entry.getKey());
+            if (pending == null && unwritten.size() >= maxCells) {
+                lostRows.increment();
+                continue;
+            }
+            unwritten.computeIfAbsent(entry.getKey(), k -> new Cell()).merge(entry.getValue());
+        }
+    }
+
+    /**
+     * Un INSERT ... ON CONFLICT por lote en PostgreSQL; en H2, que no lo admite, el
+     * MERGE equivalente.
+     */
+    private Mono<Long> upsert(List<Map.Entry<RowKey, Cell>> batch) {
+        boolean h2 = databaseClient.getConnectionFactory().getMetadata().getName().contains("H2");
+        StringBuilder sql = new StringBuilder(h2 ? MERGE : UPSERT);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(" : ", (")
+                    .append(":g").append(i).append(", :b").append(i).append(", :d").append(i).append(", :v").append(i)
+                    .append(", :n").append(i).append(", :e").append(i).append(", :s").append(i).append(", :m").append(i)
+                    .append(')');
+        }
+        sql.append(h2 ? MERGE_ON : ON_CONFLICT);
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < batch.size(); i++) {
+            RowKey key = batch.get(i).getKey();
+            Cell cell = batch.get(i).getValue();
+            spec = spec.bind("g" + i, key.granularity.name())
+                    .bind("b" + i, key.bucket)
+                    .bind("d" + i, key.dimension.name())
+                    .bind("v" + i, key.value)
+                    .bind("n" + i, cell.requests.sum())
+                    .bind("e" + i, cell.errors.sum())
+                    .bind("s" + i, cell.latencySum.sum())
+                    .bind("m" + i, cell.latencyMax.get());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private Mono<Void> deleteExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        return Flux.fromIterable(retention.entrySet())
+                .filter(entry -> !entry.getValue().isZero() && !entry.getValue().isNegative())
+                .concatMap(entry -> databaseClient
+                        .sql("DELETE FROM tracking_rollup WHERE granularity = :granularity AND bucket < :cutoff")
+                        .bind("granularity", entry.getKey().name())
+                        .bind("cutoff", now.minus(entry.getValue()))
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    private static LocalDateTime truncate(long minute, Granularity granularity) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(minute * 60), ZoneId.systemDefault());
+        switch (granularity) {
+            case HOUR: return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY: return time.truncatedTo(ChronoUnit.DAYS);
+            default: return time.truncatedTo(ChronoUnit.MINUTES);
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class CellKey {
+        private final Dimension dimension;
+        private final String value;
+        private final long minute;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class RowKey {
+        private final Granularity granularity;
+        private final LocalDateTime bucket;
+        private final Dimension dimension;
+        private final String value;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class PointKey implements Comparable<PointKey> {
+        private static final Comparator<PointKey> ORDER =
+                Comparator.comparing((PointKey key) -> key.bucket).thenComparing(key -> key.value);
+
+        private final LocalDateTime bucket;
+        private final String value;
+
+        @Override
+        public int compareTo(PointKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static final class Cell {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder latencySum = new LongAdder();
+        private final LongAccumulator latencyMax = new LongAccumulator(Math::max, 0);
+
+        private void add(boolean error, long latencyMillis) {
+            requests.increment();
+            if (error) {
+                errors.increment();
+            }
+            if (latencyMillis >= 0) {
+                latencySum.add(latencyMillis);
+                latencyMax.accumulate(latencyMillis);
+            }
+        }
+
+        private void merge(Cell other) {
+            requests.add(other.requests.sum());
+            errors.add(other.errors.sum());
+            latencySum.add(other.latencySum.sum());
+            latencyMax.accumulate(other.latencyMax.get());
+        }
+
+        private Point toPoint(LocalDateTime bucket, String value) {
+            return new Point(bucket, value, requests.sum(), errors.sum(), latencySum.sum(), latencyMax.get());
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Point {
+        private final LocalDateTime bucket;
+        private final String value;
+        private final long requests;
+        private final long errors;
+        private final long latencySum;
+        private final long latencyMax;
+
+        private PointKey key() {
+            return new PointKey(bucket, value);
+        }
+
+        private Point plus(Point other) {
+            return new Point(bucket, value, requests + other.requests, errors + other.errors,
+                    latencySum + other.latencySum, Math.max(latencyMax, other.latencyMax));
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("bucket", bucket);
+            map.put("value", value);
+            map.put("requests", requests);
+            map.put("errors", errors);
+            map.put("avgLatencyMs", requests == 0 ? 0 : latencySum / requests);
+            map.put("maxLatencyMs", latencyMax);
+            return map;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.reactive.nexo.service;
 
 import com.reactive.nexo.model.Tracking;
-import com.reactive.nexo.repository.TrackingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -12,31 +11,40 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class TrackingService {
 
-    private final TrackingRepository trackingRepository;
+    private final TrackingWriter trackingWriter;
+    private final TrackingRollups trackingRollups;
 
     /**
-     * Registra una nueva acción en el sistema de tracking
+     * Registra una nueva acción en el sistema de tracking. La fila se escribe en el
+     * siguiente lote de {@link TrackingWriter} y se suma a los agregados de
+     * {@link TrackingRollups}; emite true si la acción quedó encolada.
      */
-    public Mono<Tracking> logAction(Long employeeId, String action, String data, String result) {
+    public Mono<Boolean> logAction(Long employeeId, String action, String data, String result) {
         log.debug("Registrando acción: employeeId={}, action={}", employeeId, action);
         
         Tracking tracking = new Tracking(employeeId, action, data, result);
-        return trackingRepository.save(tracking)
-                .doOnSuccess(saved -> log.debug("Acción registrada con ID: {}", saved.getId()))
-                .doOnError(error -> log.error("Error al registrar acción", error));
+        // Al suscribirse, como la escritura: un Mono que no se ejecuta no cuenta
+        return Mono.fromRunnable(() -> trackingRollups.record(tracking.getAction(), employeeId, null,
+                        tracking.getAction().startsWith("error: "), -1))
+                .then(trackingWriter.enqueue(tracking))
+                .doOnNext(queued -> {
+                    if (!queued) {
+                        log.debug("Acción descartada, cola de tracking llena: {}", action);
+                    }
+                });
     }
 
     /**
      * Registra una acción con solo la acción y datos (empleado y resultado opcionales)
      */
-    public Mono<Tracking> logAction(String action, String data) {
+    public Mono<Boolean> logAction(String action, String data) {
         return logAction(null, action, data, null);
     }
 
     /**
      * Registra una llamada a endpoint
      */
-    public Mono<Tracking> logEndpointCall(Long employeeId, String endpoint, String payload, String response) {
+    public Mono<Boolean> logEndpointCall(Long employeeId, String endpoint, String payload, String response) {
         String action = "endpoint called: " + endpoint;
         return logAction(employeeId, action, payload, response);
     }
@@ -44,7 +52,7 @@ public class TrackingService {
     /**
      * Registra una acción de autenticación
      */
-    public Mono<Tracking> logAuthAction(Long employeeId, String authAction, String details) {
+    public Mono<Boolean> logAuthAction(Long employeeId, String authAction, String details) {
         String action = "auth: " + authAction;
         return logAction(employeeId, action, details, null);
     }
@@ -52,7 +60,7 @@ public class TrackingService {
     /**
      * Registra un error del sistema
      */
-    public Mono<Tracking> logError(Long employeeId, String errorType, String errorDetails, String stackTrace) {
+    public Mono<Boolean> logError(Long employeeId, String errorType, String errorDetails, String stackTrace) {
         String action = "error: " + errorType;
         return logAction(employeeId, action, errorDetails, stackTrace);
     }
@@ -0,0 +1,244 @@
+package com.reactive.nexo.service;
+
+import com.reactive.nexo.gateway.RingBuffer;
+import com.reactive.nexo.model.Tracking;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Escritura asíncrona y por lotes de la tabla tracking.
+ * <p>
+ * Los productores dejan el registro en un {@link RingBuffer} acotado y vuelven en
+ * el acto. Un único drenador lo vacía cada {@code flush-interval}, o antes si se
+ * acumulan {@code batch-size} registros, con un INSERT de varias filas por lote.
+ * Con la cola llena, el registro se descarta (DROP) o el productor espera sin
+ * bloquear hasta {@code max-wait} a que haya hueco (BACKPRESSURE). Al parar la
+ * aplicación se escribe lo pendiente antes de cerrar las conexiones.
+ */
+@Component
+@Slf4j
+public class TrackingWriter {
+
+    public enum OverflowPolicy { DROP, BACKPRESSURE }
+
+    private static final String INSERT = "INSERT INTO tracking (created_at, employee_id, action, data, result) VALUES ";
+    private static final Duration RETRY_OFFER_EVERY = Duration.ofMillis(5);
+
+    private final DatabaseClient databaseClient;
+    private final RingBuffer<Tracking> buffer;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final OverflowPolicy overflow;
+    private final Duration maxWait;
+    private final Duration shutdownTimeout;
+
+    private final Sinks.Many<Long> wakeups = Sinks.many().multicast().directBestEffort();
+    private final Sinks.One<Boolean> shutdown = Sinks.one();
+    private volatile boolean accepting = true;
+    private CompletableFuture<Void> stopped;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final LongAccumulator maxBatch = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxFlushNanos = new LongAccumulator(Math::max, 0);
+
+    public TrackingWriter(DatabaseClient databaseClient,
+                          @Value("${tracking.writer.capacity:16384}") int capacity,
+                          @Value("${tracking.writer.batch-size:500}") int batchSize,
+                          @Value("${tracking.writer.flush-interval:1s}") Duration flushInterval,
+                          @Value("${tracking.writer.overflow:DROP}") OverflowPolicy overflow,
+                          @Value("${tracking.writer.max-wait:100ms}") Duration maxWait,
+                          @Value("${tracking.writer.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.databaseClient = databaseClient;
+        this.buffer = new RingBuffer<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = flushInterval;
+        this.overflow = overflow;
+        this.maxWait = maxWait;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    @PostConstruct
+    public void start() {
+        stopped = Flux.merge(Flux.interval(flushInterval, flushInterval), wakeups.asFlux())
+            .takeUntilOther(shutdown.asMono())
+            .onBackpressureDrop()
+            .concatMap(tick -> drain(false))
+            .then(Mono.defer(() -> drain(true)))
+            .toFuture();
+        log.info("Tracking writer: queue {}, batches of {} every {}, overflow {}",
+            buffer.capacity(), batchSize, flushInterval, overflow);
+    }
+
+    /**
+     * Encola el registro sin esperar nunca; false (y se cuenta como descartado) si la
+     * cola está llena o el escritor se está parando.
+     */
+    public boolean offer(Tracking tracking) {
+        if (tryOffer(tracking)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Encola el registro aplicando la política de desbordamiento: con BACKPRESSURE,
+     * el Mono no completa hasta que hay hueco o pasa {@code max-wait}. Emite true si
+     * el registro quedó encolado.
+     */
+    public Mono<Boolean> enqueue(Tracking tracking) {
+        return Mono.defer(() -> {
+            if (tryOffer(tracking)) {
+                return Mono.just(true);
+            }
+            if (overflow == OverflowPolicy.DROP || !accepting) {
+                dropped.increment();
+                return Mono.just(false);
+            }
+            waited.increment();
+            return Flux.interval(RETRY_OFFER_EVERY)
+                .filter(tick -> tryOffer(tracking))
+                .next()
+                .map(tick -> true)
+                .timeout(maxWait, Mono.fromSupplier(() -> {
+                    dropped.increment();
+                    return false;
+                }));
+        });
+    }
+
+    public Map<String, Object> snapshot() {
+        long batchCount = batches.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("capacity", buffer.capacity());
+        snapshot.put("depth", buffer.size());
+        snapshot.put("overflow", overflow);
+        snapshot.put("enqueued", enqueued.sum());
+        snapshot.put("dropped", dropped.sum());
+        snapshot.put("waited", waited.sum());
+        snapshot.put("written", written.sum());
+        snapshot.put("failed", failed.sum());
+        snapshot.put("batches", batchCount);
+        snapshot.put("avgBatchSize", batchCount == 0 ? 0 : written.sum() / batchCount);
+        snapshot.put("maxBatchSize", maxBatch.get());
+        snapshot.put("avgFlushMicros", batchCount == 0 ? 0 : flushNanos.sum() / batchCount / 1_000);
+        snapshot.put("maxFlushMicros", maxFlushNanos.get() / 1_000);
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void stop() {
+        accepting = false;
+        shutdown.tryEmitValue(true);
+        try {
+            stopped.get(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Tracking writer stopped with {} records pending", buffer.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Tracking writer failed while flushing on shutdown", e.getCause());
+        }
+    }
+
+    private boolean tryOffer(Tracking tracking) {
+        if (!accepting) {
+            return false;
+        }
+        if (buffer.offer(tracking)) {
+            enqueued.increment();
+            if (buffer.size() >= batchSize) {
+                wakeups.tryEmitNext(0L);
+            }
+            return true;
+        }
+        // Cola llena: que el drenador no espere al siguiente intervalo
+        wakeups.tryEmitNext(0L);
+        return false;
+    }
+
+    /**
+     * Escribe lotes mientras quede al menos uno completo; con {@code all}, hasta
+     * vaciar la cola.
+     */
+    private Mono<Void> drain(boolean all) {
+        return Mono.defer(() -> {
+            List<Tracking> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, buffer.size())));
+            Tracking tracking;
+            while (batch.size() < batchSize && (tracking = buffer.poll()) != null) {
+                batch.add(tracking);
+            }
+            if (batch.isEmpty()) {
+                return Mono.empty();
+            }
+            return insert(batch)
+                .then(Mono.defer(() -> all || buffer.size() >= batchSize ? drain(all) : Mono.empty()));
+        });
+    }
+
+    private Mono<Void> insert(List<Tracking> batch) {
+        StringBuilder sql = new StringBuilder(INSERT);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(" : ", (")
+                .append(":c").append(i).append(", :e").append(i).append(", :a").append(i)
+                .append(", :d").append(i).append(", :r").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < batch.size(); i++) {
+            Tracking tracking = batch.get(i);
+            spec = bind(spec, "c" + i, tracking.getCreatedAt() != null ? tracking.getCreatedAt() : LocalDateTime.now(), LocalDateTime.class);
+            spec = bind(spec, "e" + i, tracking.getEmployeeId(), Long.class);
+            spec = bind(spec, "a" + i, tracking.getAction(), String.class);
+            spec = bind(spec, "d" + i, tracking.getData(), String.class);
+            spec = bind(spec, "r" + i, tracking.getResult(), String.class);
+        }
+        long started = System.nanoTime();
+        return spec.fetch().rowsUpdated()
+            .doOnNext(rows -> {
+                long elapsed = System.nanoTime() - started;
+                written.add(batch.size());
+                batches.increment();
+                maxBatch.accumulate(batch.size());
+                flushNanos.add(elapsed);
+                maxFlushNanos.accumulate(elapsed);
+            })
+            .onErrorResume(e -> {
+                // Un lote fallido no debe parar el drenador; se cuenta y se sigue
+                failed.add(batch.size());
+                log.error("Could not write {} tracking records: {}", batch.size(), e.getMessage());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                          Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+}
@@ -1,19 +1,45 @@
 package com.reactive.nexo.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
 
+import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Emisión y verificación de JWT.
+ * <p>
+ * La clave HMAC y el parser se construyen una sola vez. Los claims ya verificados se
+ * guardan en una caché acotada indexada por el SHA-256 del token, y cada entrada
+ * caduca en el {@code exp} del token, de modo que un token repetido solo cuesta un
+ * hash y una búsqueda. Los tokens que no pasan la verificación se recuerdan durante
+ * {@code jwt.cache.rejected-ttl}, para que un token inválido repetido no se vuelva a
+ * verificar ni a registrar en el log. Los claims devueltos son compartidos: no se
+ * deben modificar.
+ */
 @Component
 @Slf4j
 public class JwtUtil {
@@ -24,8 +50,67 @@ public class JwtUtil {
     @Value("${jwt.expiration:3600000}")  // Default 1 hour in milliseconds
     private long jwtExpiration;
 
+    /** Claims de los tokens compactos: rol y versión de su conjunto de permisos. */
+    public static final String ROLE_CLAIM = "rol_id";
+    public static final String PERMISSION_VERSION_CLAIM = "perm_v";
+
+    /** Atributo del exchange con los claims del bearer token, o {@link Boolean#FALSE} si no es válido. */
+    public static final String CLAIMS_ATTRIBUTE = JwtUtil.class.getName() + ".claims";
+
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${jwt.cache.rejected-ttl:1m}")
+    private Duration rejectedTtl;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, Claims> verifiedTokens;
+    private Cache<String, Boolean> rejectedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return untilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return untilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        rejectedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(rejectedTtl)
+                .recordStats()
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
 
     /**
@@ -50,35 +135,110 @@ public class JwtUtil {
     }
 
     /**
-     * Extract claims from a token
+     * Generate a compact JWT token: instead of the permission list it carries the
+     * role id and the version of its permission set (see RolePermissionTable)
+     */
+    public String generateCompactToken(String employeeId, String ipAddress, String userAgent, Integer roleId, String permissionVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("employee_id", employeeId);
+        claims.put("ip_address", ipAddress);
+        claims.put("user_agent", userAgent);
+        claims.put(ROLE_CLAIM, roleId);
+        claims.put(PERMISSION_VERSION_CLAIM, permissionVersion);
+
+        return Jwts.builder()
+                .setClaims(claims)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Extract claims from a token (verified once, then served from the cache until exp)
      */
     public Claims extractClaims(String token) {
+        if (token == null) {
+            return null;
+        }
+        String key = digest(token);
+        Claims cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            if (!isExpired(cached)) {
+                return cached;
+            }
+            verifiedTokens.invalidate(key);
+        }
+        if (rejectedTokens.getIfPresent(key) != null) {
+            return null;
+        }
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getExpiration() != null) {
+                // Sin exp no hay momento seguro para sacarlo de la caché
+                verifiedTokens.put(key, claims);
+            }
+            return claims;
         } catch (Exception e) {
-            log.warn("Failed to extract claims from token: {}", e.getMessage());
+            // Lo decide el cliente: a nivel debug para que no se pueda inflar el log
+            log.debug("Failed to extract claims from token: {}", e.getMessage());
+            rejectedTokens.put(key, Boolean.TRUE);
             return null;
         }
     }
 
+    /**
+     * Claims del bearer token de la petición. Se verifica una vez por petición: el
+     * resultado, también si no es válido, queda en {@link #CLAIMS_ATTRIBUTE} para
+     * los filtros siguientes. Null si no hay token o no es válido.
+     */
+    public Claims requestClaims(ServerWebExchange exchange) {
+        Object stored = exchange.getAttributes().get(CLAIMS_ATTRIBUTE);
+        if (stored != null) {
+            return stored instanceof Claims ? (Claims) stored : null;
+        }
+        String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        Claims claims = authorization != null && authorization.startsWith("Bearer ")
+                ? extractClaims(authorization.substring(7))
+                : null;
+        exchange.getAttributes().put(CLAIMS_ATTRIBUTE, claims != null ? claims : Boolean.FALSE);
+        return claims;
+    }
+
     /**
      * Validate a token
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            log.warn("Token validation failed: {}", e.getMessage());
-            return false;
-        }
+        return extractClaims(token) != null;
+    }
+
+    /**
+     * Saca un token de la caché de verificación, por ejemplo al revocarlo.
+     */
+    public void invalidate(String token) {
+        verifiedTokens.invalidate(digest(token));
+    }
+
+    public void invalidateAll() {
+        verifiedTokens.invalidateAll();
+        rejectedTokens.invalidateAll();
+    }
+
+    /**
+     * Tamaño y tasa de aciertos de la caché de tokens verificados.
+     */
+    public Map<String, Object> cacheStats() {
+        CacheStats stats = verifiedTokens.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("entries", verifiedTokens.estimatedSize());
+        snapshot.put("maxSize", cacheMaxSize);
+        snapshot.put("hits", stats.hitCount());
+        snapshot.put("misses", stats.missCount());
+        snapshot.put("hitRate", stats.hitRate());
+        snapshot.put("evictions", stats.evictionCount());
+        snapshot.put("rejectedEntries", rejectedTokens.estimatedSize());
+        snapshot.put("rejectedHits", rejectedTokens.stats().hitCount());
+        return snapshot;
     }
 
     /**
@@ -121,4 +281,22 @@ public class JwtUtil {
         if (claims == null) return null;
         return (String) claims.get("rol");
     }
+
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    private static long untilExpiration(Claims claims) {
+        long millis = claims.getExpiration().getTime() - System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    /**
+     * SHA-256 del token en Base64 URL, usado como clave de caché y de revocación.
+     */
+    public static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
 }
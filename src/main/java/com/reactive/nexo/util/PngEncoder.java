@@ -0,0 +1,97 @@
+package com.reactive.nexo.util;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Codifica un {@link BitMatrix} como PNG en escala de grises de 1 bit, sin pasar
+ * por BufferedImage ni ImageIO: cada fila se empaqueta a 8 píxeles por byte y se
+ * comprime directamente.
+ */
+public final class PngEncoder {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private PngEncoder() {
+    }
+
+    public static byte[] encode(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowBytes = (width + 7) / 8;
+
+        // Filas sin filtro (byte 0) y bits a 1 para blanco, a 0 para los módulos negros
+        byte[] raw = new byte[height * (rowBytes + 1)];
+        int position = 0;
+        for (int y = 0; y < height; y++) {
+            raw[position++] = 0;
+            for (int x = 0; x < width; x += 8) {
+                int packed = 0;
+                for (int bit = 0; bit < 8; bit++) {
+                    boolean white = x + bit >= width || !matrix.get(x + bit, y);
+                    packed = (packed << 1) | (white ? 1 : 0);
+                }
+                raw[position++] = (byte) packed;
+            }
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(raw.length / 4 + 128);
+        png.writeBytes(SIGNATURE);
+
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 1;  // bit depth
+        header[9] = 0;  // escala de grises
+        header[10] = 0; // deflate
+        header[11] = 0; // filtro adaptativo
+        header[12] = 0; // sin entrelazado
+        writeChunk(png, "IHDR", header, header.length);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] compressed = new byte[raw.length + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            writeChunk(png, "IDAT", compressed, length);
+        } finally {
+            deflater.end();
+        }
+
+        writeChunk(png, "IEND", new byte[0], 0);
+        return png.toByteArray();
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data, int length) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] intBuffer = new byte[4];
+        putInt(intBuffer, 0, length);
+        out.writeBytes(intBuffer);
+        out.writeBytes(typeBytes);
+        out.write(data, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(intBuffer, 0, (int) crc.getValue());
+        out.writeBytes(intBuffer);
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,125 @@
+package com.reactive.nexo.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Genera los PNG de los códigos QR de 2FA fuera del event loop.
+ * <p>
+ * El trabajo corre en un scheduler propio con {@code threads} hilos; como mucho
+ * {@code queue-capacity} peticiones esperan turno y las demás se rechazan en el
+ * acto con {@link RejectedExecutionException}. La imagen se escribe con
+ * {@link PngEncoder} a 1 bit por píxel, sin BufferedImage ni ImageIO.
+ */
+@Component
+@Slf4j
+public class QrCodeRenderer {
+
+    private final int size;
+    private final int maxPending;
+    private final Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+    private final Scheduler scheduler;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAccumulator maxRenderNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+
+    public QrCodeRenderer(@Value("${two-factor.qr.size:200}") int size,
+                          @Value("${two-factor.qr.error-correction:M}") ErrorCorrectionLevel errorCorrection,
+                          @Value("${two-factor.qr.margin:4}") int margin,
+                          @Value("${two-factor.qr.threads:2}") int threads,
+                          @Value("${two-factor.qr.queue-capacity:64}") int queueCapacity) {
+        this.size = size;
+        int workers = Math.max(1, threads);
+        this.maxPending = workers + Math.max(0, queueCapacity);
+        hints.put(EncodeHintType.ERROR_CORRECTION, errorCorrection);
+        hints.put(EncodeHintType.MARGIN, Math.max(0, margin));
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        this.scheduler = Schedulers.newBoundedElastic(workers, Math.max(1, queueCapacity), "qr-render", 60, true);
+        log.info("QR renderer: {}px, error correction {}, {} threads, queue {}", size, errorCorrection, workers, queueCapacity);
+    }
+
+    /**
+     * PNG con el QR del contenido indicado. Falla con {@link RejectedExecutionException}
+     * si ya hay demasiadas peticiones en curso.
+     */
+    public Mono<byte[]> render(String content) {
+        return Mono.defer(() -> {
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                rejected.increment();
+                return Mono.error(new RejectedExecutionException("QR renderer saturated"));
+            }
+            long submitted = System.nanoTime();
+            return Mono.fromCallable(() -> encode(content, submitted))
+                .subscribeOn(scheduler)
+                .doOnError(e -> failed.increment())
+                .doFinally(signal -> pending.decrementAndGet());
+        });
+    }
+
+    public Map<String, Object> snapshot() {
+        long count = rendered.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("size", size);
+        snapshot.put("errorCorrection", String.valueOf(hints.get(EncodeHintType.ERROR_CORRECTION)));
+        snapshot.put("pending", pending.get());
+        snapshot.put("maxPending", maxPending);
+        snapshot.put("rendered", count);
+        snapshot.put("failed", failed.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("bytes", bytes.sum());
+        // Tiempo de CPU que antes se consumía en el event loop
+        snapshot.put("offloadedMillis", renderNanos.sum() / 1_000_000);
+        snapshot.put("avgRenderMicros", count == 0 ? 0 : renderNanos.sum() / count / 1_000);
+        snapshot.put("maxRenderMicros", maxRenderNanos.get() / 1_000);
+        snapshot.put("avgQueueMicros", count == 0 ? 0 : queueNanos.sum() / count / 1_000);
+        snapshot.put("maxQueueMicros", maxQueueNanos.get() / 1_000);
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+
+    private byte[] encode(String content, long submitted) throws WriterException {
+        long started = System.nanoTime();
+        BitMatrix matrix = new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, size, size, hints);
+        byte[] png = PngEncoder.encode(matrix);
+        long finished = System.nanoTime();
+
+        rendered.increment();
+        bytes.add(png.length);
+        renderNanos.add(finished - started);
+        maxRenderNanos.accumulate(finished - started);
+        queueNanos.add(started - submitted);
+        maxQueueNanos.accumulate(started - submitted);
+        return png;
+    }
+}
@@ -0,0 +1,177 @@
+package com.reactive.nexo.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.codec.binary.Base32;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verificación de códigos TOTP (RFC 6238, HMAC-SHA1, 6 dígitos, pasos de 30 s).
+ * <p>
+ * El secreto Base32 se decodifica una vez y la clave se guarda en caché; cada hilo
+ * reutiliza su {@link Mac} y sus buffers, y el código se compara como entero en
+ * tiempo constante, así que verificar no asigna memoria. Se aceptan los pasos
+ * dentro de ±{@code window} para tolerar desfases de reloj, y cada par
+ * (empleado, paso) solo se acepta una vez.
+ */
+@Component
+public class TotpVerifier {
+
+    private static final String HMAC_SHA1 = "HmacSHA1";
+    private static final int PERIOD_SECONDS = 30;
+    private static final int DIGITS = 6;
+    private static final int MODULUS = 1_000_000;
+
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_SHA1);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<byte[]> COUNTER = ThreadLocal.withInitial(() -> new byte[8]);
+    private static final ThreadLocal<byte[]> HASH = ThreadLocal.withInitial(() -> new byte[20]);
+
+    private final int window;
+    private final Clock clock;
+    private final Cache<String, SecretKeySpec> keys;
+    private final Cache<String, Boolean> usedCodes;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder skewed = new LongAdder();
+
+    @Autowired
+    public TotpVerifier(@Value("${two-factor.window:1}") int window,
+                        @Value("${two-factor.replay-cache-size:10000}") long replayCacheSize) {
+        this(window, replayCacheSize, Clock.systemUTC());
+    }
+
+    TotpVerifier(int window, long replayCacheSize, Clock clock) {
+        this.window = Math.max(0, window);
+        this.clock = clock;
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(replayCacheSize)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+        // Un código deja de ser válido tras (2 * window + 1) pasos; hasta entonces se recuerda
+        this.usedCodes = Caffeine.newBuilder()
+                .maximumSize(replayCacheSize)
+                .expireAfterWrite(Duration.ofSeconds((long) PERIOD_SECONDS * (2L * this.window + 2)))
+                .build();
+    }
+
+    /**
+     * Verifica el código del empleado con su secreto Base32. Un código ya usado por
+     * el mismo empleado en el mismo paso se rechaza, igual que un secreto vacío o
+     * que no decodifica a ningún byte.
+     */
+    public boolean verify(String employeeId, String secret, String code) {
+        int candidate = parseCode(code);
+        if (candidate < 0 || secret == null || secret.isBlank()) {
+            rejected.increment();
+            return false;
+        }
+        SecretKeySpec key;
+        try {
+            key = keys.get(secret, TotpVerifier::decodeKey);
+        } catch (IllegalArgumentException e) {
+            // Solo relleno u otros caracteres fuera de Base32: SecretKeySpec no admite claves vacías
+            rejected.increment();
+            return false;
+        }
+        long currentStep = clock.millis() / 1000 / PERIOD_SECONDS;
+        long matchedStep = -1;
+        // Se calculan todos los pasos de la ventana, coincida o no, para no filtrar tiempos
+        for (long step = currentStep - window; step <= currentStep + window; step++) {
+            int difference = generateCode(key, step) ^ candidate;
+            long isMatch = ((long) difference - 1) >>> 63;
+            matchedStep = (matchedStep & (isMatch - 1)) | (step & -isMatch);
+        }
+        if (matchedStep < 0) {
+            rejected.increment();
+            return false;
+        }
+        if (employeeId != null && usedCodes.asMap().putIfAbsent(employeeId + ':' + matchedStep, Boolean.TRUE) != null) {
+            replays.increment();
+            return false;
+        }
+        if (matchedStep != currentStep) {
+            skewed.increment();
+        }
+        accepted.increment();
+        return true;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("window", window);
+        snapshot.put("accepted", accepted.sum());
+        snapshot.put("acceptedWithSkew", skewed.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("replays", replays.sum());
+        return snapshot;
+    }
+
+    /**
+     * Código TOTP de la clave para un paso, como entero de 0 a 999999.
+     */
+    public static int generateCode(SecretKeySpec key, long step) {
+        Mac mac = MAC.get();
+        byte[] counter = COUNTER.get();
+        byte[] hash = HASH.get();
+        for (int i = 7; i >= 0; i--) {
+            counter[i] = (byte) step;
+            step >>>= 8;
+        }
+        try {
+            mac.init(key);
+            mac.update(counter);
+            mac.doFinal(hash, 0);
+        } catch (InvalidKeyException | ShortBufferException e) {
+            throw new IllegalStateException("Cannot compute TOTP code", e);
+        }
+        int offset = hash[hash.length - 1] & 0xf;
+        int truncated = ((hash[offset] & 0x7f) << 24)
+                | ((hash[offset + 1] & 0xff) << 16)
+                | ((hash[offset + 2] & 0xff) << 8)
+                | (hash[offset + 3] & 0xff);
+        return truncated % MODULUS;
+    }
+
+    public static SecretKeySpec decodeKey(String secret) {
+        return new SecretKeySpec(new Base32().decode(secret), HMAC_SHA1);
+    }
+
+    /**
+     * Código de 6 dígitos como entero, o -1 si no es válido.
+     */
+    private static int parseCode(String code) {
+        if (code == null || code.length() != DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -11,12 +11,46 @@ CREATE TABLE session (
 	CONSTRAINT uq_session_token UNIQUE (token)
 );
 
+CREATE TABLE IF NOT EXISTS revoked_token (
+	token_digest VARCHAR(64) PRIMARY KEY,
+	employee_id VARCHAR(50),
+	expires_at TIMESTAMP NOT NULL,
+	revoked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_revoked_token_expires_at ON revoked_token (expires_at);
+
 DROP TABLE IF EXISTS tracking;
+-- Particionada por rango de created_at. TrackingPartitionManager crea las particiones
+-- diarias o mensuales por adelantado y borra o separa las expiradas; tracking_default
+-- recoge las filas que llegan antes de que exista la partición de su periodo.
 CREATE TABLE tracking (
-	id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-	created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	id BIGSERIAL,
+	created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
 	employee_id BIGINT,
 	action VARCHAR(500) NOT NULL DEFAULT 'endpoint called',
 	data TEXT,
-	result TEXT
-);
\ No newline at end of file
+	result TEXT,
+	-- Palabras de data y result para /tracking/search, calculadas al insertar
+	search_vector TSVECTOR GENERATED ALWAYS AS (to_tsvector('simple', coalesce(data, '') || ' ' || coalesce(result, ''))) STORED,
+	PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+CREATE TABLE tracking_default PARTITION OF tracking DEFAULT;
+-- Cubren los filtros de las consultas de tracking con su orden (created_at DESC, id DESC)
+CREATE INDEX idx_tracking_created_at ON tracking (created_at DESC, id DESC);
+CREATE INDEX idx_tracking_employee_id ON tracking (employee_id, created_at DESC, id DESC);
+CREATE INDEX idx_tracking_action ON tracking (action varchar_pattern_ops, created_at DESC, id DESC);
+CREATE INDEX idx_tracking_search ON tracking USING GIN (search_vector);
+
+-- Agregados por minuto, hora y día que mantiene TrackingRollups
+DROP TABLE IF EXISTS tracking_rollup;
+CREATE TABLE tracking_rollup (
+	granularity VARCHAR(6) NOT NULL,
+	bucket TIMESTAMP NOT NULL,
+	dimension VARCHAR(10) NOT NULL,
+	dimension_value VARCHAR(500) NOT NULL,
+	requests BIGINT NOT NULL,
+	errors BIGINT NOT NULL,
+	latency_sum BIGINT NOT NULL,
+	latency_max BIGINT NOT NULL,
+	PRIMARY KEY (granularity, dimension, bucket, dimension_value)
+);
@@ -0,0 +1,48 @@
+-- Esquema para el perfil h2. Sin particiones ni tsvector: la retención del tracking
+-- es un DELETE por fecha y /tracking/search usa el índice en memoria TrackingTextIndex.
+DROP TABLE IF EXISTS session;
+CREATE TABLE session (
+	id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	user_id INT NOT NULL,
+	token VARCHAR(300) NOT NULL,
+	ip_address VARCHAR(100) NOT NULL,
+	useragent VARCHAR(2) NOT NULL,
+	created_at VARCHAR(15) NOT NULL,
+	expiration VARCHAR(15) NOT NULL,
+	CONSTRAINT uq_session_user_id UNIQUE (user_id),
+	CONSTRAINT uq_session_token UNIQUE (token)
+);
+
+CREATE TABLE IF NOT EXISTS revoked_token (
+	token_digest VARCHAR(64) PRIMARY KEY,
+	employee_id VARCHAR(50),
+	expires_at TIMESTAMP NOT NULL,
+	revoked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_revoked_token_expires_at ON revoked_token (expires_at);
+
+DROP TABLE IF EXISTS tracking;
+CREATE TABLE tracking (
+	id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	employee_id BIGINT,
+	action VARCHAR(500) NOT NULL DEFAULT 'endpoint called',
+	data TEXT,
+	result TEXT
+);
+CREATE INDEX idx_tracking_created_at ON tracking (created_at DESC, id DESC);
+CREATE INDEX idx_tracking_employee_id ON tracking (employee_id, created_at DESC, id DESC);
+CREATE INDEX idx_tracking_action ON tracking (action, created_at DESC, id DESC);
+
+DROP TABLE IF EXISTS tracking_rollup;
+CREATE TABLE tracking_rollup (
+	granularity VARCHAR(6) NOT NULL,
+	bucket TIMESTAMP NOT NULL,
+	dimension VARCHAR(10) NOT NULL,
+	dimension_value VARCHAR(500) NOT NULL,
+	requests BIGINT NOT NULL,
+	errors BIGINT NOT NULL,
+	latency_sum BIGINT NOT NULL,
+	latency_max BIGINT NOT NULL,
+	PRIMARY KEY (granularity, dimension, bucket, dimension_value)
+);
@@ -0,0 +1,46 @@
+package com.reactive.nexo;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Medición sencilla para comparar una implementación con la anterior dentro de los
+ * tests. Los métodos de benchmark llevan
+ * {@code @EnabledIfSystemProperty(named = Benchmark.PROPERTY, matches = "true")} y
+ * solo se ejecutan con {@code mvn test -Dbenchmark=true}, así que no alargan ni
+ * vuelven inestable el build normal.
+ */
+public final class Benchmark {
+
+    public static final String PROPERTY = "benchmark";
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Nanosegundos por operación, la mejor de varias rondas tras calentar el JIT.
+     * {@code op} recibe el número de iteración y devuelve un valor que se acumula
+     * para que el JIT no elimine la llamada.
+     */
+    public static double nanosPerOp(String name, int operations, IntUnaryOperator op) {
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < operations; i++) {
+                sink += op.applyAsInt(i);
+            }
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                sink += op.applyAsInt(i);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double nanos = (double) best / operations;
+        System.out.printf("%-45s %10.1f ns/op  [%d]%n", name, nanos, sink & 0xff);
+        return nanos;
+    }
+}
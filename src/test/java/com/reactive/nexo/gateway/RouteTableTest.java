@@ -0,0 +1,133 @@
+package com.reactive.nexo.gateway;
+
+import com.reactive.nexo.Benchmark;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteTableTest {
+
+    private static final RouteDescriptor USERS = route("users", "/api/v1/users");
+    private static final RouteDescriptor EMPLOYEES = route("employees", "/api/v1/employees");
+    private static final RouteDescriptor SCHEDULE = route("schedule", "/api/v1/schedule");
+    private static final RouteDescriptor ROLS = route("rols", "/api/v1/rols");
+    private static final RouteDescriptor EMPLOYEE_SCHEDULE = route("employee-schedule", "/api/v1/employees/*/schedule");
+    private static final RouteDescriptor EMPLOYEE_ME = route("employee-me", "/api/v1/employees/me");
+
+    private static final RouteTable TABLE = RouteTable.compile(
+        List.of(USERS, EMPLOYEES, SCHEDULE, ROLS, EMPLOYEE_SCHEDULE, EMPLOYEE_ME));
+
+    @Test
+    void matchesLongestSegmentPrefix() {
+        assertSame(USERS, TABLE.match("/api/v1/users"));
+        assertSame(USERS, TABLE.match("/api/v1/users/7/profile"));
+        assertSame(EMPLOYEES, TABLE.match("/api/v1/employees/7"));
+        assertSame(EMPLOYEE_SCHEDULE, TABLE.match("/api/v1/employees/7/schedule"));
+        assertSame(EMPLOYEE_SCHEDULE, TABLE.match("/api/v1/employees/7/schedule/2024-12"));
+    }
+
+    @Test
+    void prefersLiteralSegmentOverWildcardOfTheSameDepth() {
+        RouteDescriptor anyEmployee = route("any-employee", "/api/v1/employees/*");
+        RouteTable table = RouteTable.compile(List.of(anyEmployee, EMPLOYEE_ME));
+        assertSame(EMPLOYEE_ME, table.match("/api/v1/employees/me"));
+        assertSame(EMPLOYEE_ME, table.match("/api/v1/employees/me/contracts"));
+        assertSame(anyEmployee, table.match("/api/v1/employees/7"));
+        // Con más segmentos gana el prefijo más largo, aunque pase por el comodín
+        assertSame(EMPLOYEE_SCHEDULE, TABLE.match("/api/v1/employees/me/schedule"));
+    }
+
+    @Test
+    void comparesWholeSegments() {
+        assertNull(TABLE.match("/api/v1/usersx"));
+        assertNull(TABLE.match("/api/v1/use"));
+        assertNull(TABLE.match("/api/v1"));
+        assertNull(TABLE.match("/"));
+        assertNull(TABLE.match(""));
+    }
+
+    @Test
+    void ignoresRepeatedAndTrailingSlashes() {
+        assertSame(SCHEDULE, TABLE.match("/api/v1/schedule/"));
+        assertSame(SCHEDULE, TABLE.match("//api//v1/schedule"));
+    }
+
+    @Test
+    void rejectsDuplicatePatterns() {
+        assertThrows(IllegalStateException.class,
+            () -> RouteTable.compile(List.of(USERS, route("users-again", "/api/v1/users/"))));
+    }
+
+    @Test
+    void resolvesLikeThePreviousLookupForServiceRoutes() {
+        Map<String, RouteDescriptor> previous = previousTable();
+        for (String path : samplePaths()) {
+            assertEquals(previousLookup(previous, path), TABLE.match(path), path);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = Benchmark.PROPERTY, matches = "true")
+    void benchmarkAgainstPreviousLookup() {
+        Map<String, RouteDescriptor> previous = previousTable();
+        String[] paths = samplePaths();
+        int mask = Integer.highestOneBit(paths.length) - 1;
+        double legacy = Benchmark.nanosPerOp("route lookup, split + stream (previous)", 500_000,
+            i -> System.identityHashCode(previousLookup(previous, paths[i & mask])));
+        double optimized = Benchmark.nanosPerOp("route lookup, RouteTable.match", 500_000,
+            i -> System.identityHashCode(TABLE.match(paths[i & mask])));
+        assertTrue(optimized < legacy, "RouteTable should be faster than the previous lookup");
+    }
+
+    /**
+     * Rutas sin comodines ni rutas anidadas, que es lo que el lookup anterior podía
+     * resolver: las de los servicios.
+     */
+    private static Map<String, RouteDescriptor> previousTable() {
+        Map<String, RouteDescriptor> table = new HashMap<>();
+        for (RouteDescriptor route : List.of(USERS, EMPLOYEES, SCHEDULE, ROLS)) {
+            table.put(route.getPattern(), route);
+        }
+        return table;
+    }
+
+    private static String[] samplePaths() {
+        return new String[] {
+            "/api/v1/users", "/api/v1/users/42", "/api/v1/employees/7", "/api/v1/employees/7/contracts",
+            "/api/v1/schedule", "/api/v1/schedule/2024/12", "/api/v1/rols/3/permissions", "/api/v1/unknown/1"
+        };
+    }
+
+    /**
+     * Lookup de GatewayController antes de RouteTable: los tres primeros segmentos
+     * unidos y buscados en un HashMap (sin el log por petición que llevaba).
+     */
+    private static RouteDescriptor previousLookup(Map<String, RouteDescriptor> table, String path) {
+        String[] relevantSegments = Arrays.stream(path.split("/"))
+            .filter(s -> !s.isEmpty())
+            .toArray(String[]::new);
+        String key = Arrays.stream(relevantSegments)
+            .limit(Math.min(relevantSegments.length, 3))
+            .collect(Collectors.joining("/", "/", ""));
+        return table.get(key);
+    }
+
+    private static RouteDescriptor route(String id, String pattern) {
+        return RouteDescriptor.builder()
+            .id(id)
+            .pattern(pattern)
+            .depth(RouteTable.depth(pattern))
+            .build();
+    }
+}
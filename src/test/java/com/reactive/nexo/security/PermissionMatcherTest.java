@@ -0,0 +1,192 @@
+package com.reactive.nexo.security;
+
+import com.reactive.nexo.Benchmark;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PermissionMatcherTest {
+
+    private static final String[] SEGMENTS = {"api", "v1", "employees", "emp", "schedule", "users", "rols", "7", "me"};
+    private static final String[] METHODS = {"GET", "POST", "PUT"};
+
+    private final PermissionChecker checker = new PermissionChecker();
+
+    @Test
+    void grantsThePathAndEverythingThatStartsWithIt() {
+        List<Map<String, Object>> permissions = List.of(Map.of("GET", List.of("/api/v1/emp")));
+        assertTrue(checker.hasPermission("GET", "/api/v1/emp", permissions));
+        assertTrue(checker.hasPermission("GET", "/api/v1/employees", permissions));
+        assertTrue(checker.hasPermission("GET", "/api/v1/employees/7/", permissions));
+        assertFalse(checker.hasPermission("GET", "/api/v1/em", permissions));
+        assertFalse(checker.hasPermission("GET", "/api/v1/users", permissions));
+        assertFalse(checker.hasPermission("POST", "/api/v1/employees", permissions));
+    }
+
+    @Test
+    void dropsTrailingPlaceholders() {
+        List<Map<String, Object>> permissions = List.of(Map.of("PUT", List.of("/api/v1/employees/{id}")));
+        assertTrue(checker.hasPermission("PUT", "/api/v1/employees/7", permissions));
+        assertTrue(checker.hasPermission("PUT", "/api/v1/employees", permissions));
+        assertFalse(checker.hasPermission("PUT", "/api/v1/users/7", permissions));
+    }
+
+    @Test
+    void middlePlaceholderMatchesOneSegment() {
+        List<Map<String, Object>> permissions = List.of(Map.of("GET", List.of("/api/v1/employees/{id}/schedule")));
+        assertTrue(checker.hasPermission("GET", "/api/v1/employees/7/schedule", permissions));
+        assertTrue(checker.hasPermission("GET", "/api/v1/employees/7/schedule/2024-12", permissions));
+        assertFalse(checker.hasPermission("GET", "/api/v1/employees/7", permissions));
+        assertFalse(checker.hasPermission("GET", "/api/v1/employees/schedule", permissions));
+    }
+
+    @Test
+    void rootGrantsEveryPathOfTheMethod() {
+        PermissionMatcher matcher = PermissionMatcher.compile(List.of(Map.of("GET", List.of("/"))));
+        assertTrue(matcher.matches("GET", "/api/v1/users", "/api/v1/users".length()));
+        assertFalse(matcher.matches("POST", "/api/v1/users", "/api/v1/users".length()));
+    }
+
+    @Test
+    void twoFactorPathsNeedNoPermission() {
+        assertTrue(checker.hasPermission("POST", "/api/v1/2fa/verify", List.of()));
+    }
+
+    @Test
+    void compilesEachPermissionListOnce() {
+        List<Map<String, Object>> permissions = List.of(Map.of("GET", List.of("/api/v1/users")));
+        assertSame(checker.matcher(permissions), checker.matcher(permissions));
+    }
+
+    @Test
+    void decidesLikeThePreviousCheckerOnRandomPermissions() {
+        Random random = new Random(7);
+        for (int token = 0; token < 200; token++) {
+            List<Map<String, Object>> permissions = randomPermissions(random);
+            PermissionChecker fresh = new PermissionChecker();
+            for (int request = 0; request < 200; request++) {
+                String method = METHODS[random.nextInt(METHODS.length)];
+                String path = randomPath(random);
+                assertEquals(previousHasPermission(method, path, permissions),
+                    fresh.hasPermission(method, path, permissions), method + " " + path + " " + permissions);
+            }
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = Benchmark.PROPERTY, matches = "true")
+    void benchmarkAgainstPreviousChecker() {
+        Random random = new Random(11);
+        List<Map<String, Object>> permissions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            List<String> endpoints = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                endpoints.add(randomPattern(random));
+            }
+            permissions.add(Map.of(METHODS[i % METHODS.length], endpoints));
+        }
+        String[] paths = new String[256];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = randomPath(random);
+        }
+        double legacy = Benchmark.nanosPerOp("permission check, regex loop (previous)", 200_000,
+            i -> previousHasPermission("GET", paths[i & 255], permissions) ? 1 : 0);
+        double optimized = Benchmark.nanosPerOp("permission check, PermissionMatcher", 200_000,
+            i -> checker.hasPermission("GET", paths[i & 255], permissions) ? 1 : 0);
+        assertTrue(optimized < legacy, "PermissionMatcher should be faster than the previous checker");
+    }
+
+    /**
+     * Permisos aleatorios sin placeholders intermedios, cuyo significado cambió a
+     * propósito (ver {@link #middlePlaceholderMatchesOneSegment()}).
+     */
+    private static List<Map<String, Object>> randomPermissions(Random random) {
+        List<Map<String, Object>> permissions = new ArrayList<>();
+        int rules = 1 + random.nextInt(4);
+        for (int i = 0; i < rules; i++) {
+            List<String> endpoints = new ArrayList<>();
+            int count = 1 + random.nextInt(4);
+            for (int j = 0; j < count; j++) {
+                endpoints.add(randomPattern(random));
+            }
+            permissions.add(Map.of(METHODS[random.nextInt(METHODS.length)], endpoints));
+        }
+        return permissions;
+    }
+
+    private static String randomPattern(Random random) {
+        StringBuilder pattern = new StringBuilder(random.nextInt(5) == 0 ? "" : "/");
+        int segments = 1 + random.nextInt(4);
+        for (int i = 0; i < segments; i++) {
+            if (i > 0) {
+                pattern.append(random.nextInt(8) == 0 ? "//" : "/");
+            }
+            String segment = SEGMENTS[random.nextInt(SEGMENTS.length)];
+            // A veces solo el principio del segmento: el permiso es un prefijo
+            pattern.append(random.nextInt(4) == 0 ? segment.substring(0, 1 + random.nextInt(segment.length())) : segment);
+        }
+        if (random.nextInt(4) == 0) {
+            pattern.append("/{id}");
+        }
+        if (random.nextInt(5) == 0) {
+            pattern.append('/');
+        }
+        return pattern.toString();
+    }
+
+    private static String randomPath(Random random) {
+        StringBuilder path = new StringBuilder();
+        int segments = random.nextInt(6);
+        for (int i = 0; i < segments; i++) {
+            path.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        if (path.length() == 0 || random.nextInt(5) == 0) {
+            path.append('/');
+        }
+        return path.toString();
+    }
+
+    /**
+     * PermissionChecker.hasPermission antes de PermissionMatcher, sin el log por
+     * regla que llevaba.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean previousHasPermission(String requestMethod, String requestPath,
+                                                 List<Map<String, Object>> permissions) {
+        String normalizedPath = requestPath.startsWith("/") ? requestPath : "/" + requestPath;
+        normalizedPath = normalizedPath.endsWith("/") ? normalizedPath.substring(0, normalizedPath.length() - 1) : normalizedPath;
+        if (normalizedPath.startsWith("/api/v1/2fa/")) {
+            return true;
+        }
+        if (permissions != null && !permissions.isEmpty()) {
+            for (Map<String, Object> permissionRule : permissions) {
+                List<String> endpoints = (List<String>) permissionRule.get(requestMethod);
+                if (endpoints != null) {
+                    for (String allowedPattern : endpoints) {
+                        allowedPattern = allowedPattern.endsWith("/")
+                            ? allowedPattern.substring(0, allowedPattern.length() - 1) : allowedPattern;
+                        allowedPattern = allowedPattern.startsWith("/") ? allowedPattern : "/" + allowedPattern;
+                        allowedPattern = allowedPattern.replaceAll("\\{[^}]*\\}", "");
+                        allowedPattern = allowedPattern.replaceAll("/{2,}", "/");
+                        allowedPattern = allowedPattern.endsWith("/") && !"/".equals(allowedPattern)
+                            ? allowedPattern.substring(0, allowedPattern.length() - 1)
+                            : allowedPattern;
+                        if (normalizedPath.startsWith(allowedPattern)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
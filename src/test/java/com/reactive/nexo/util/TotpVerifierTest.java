@@ -0,0 +1,179 @@
+package com.reactive.nexo.util;
+
+import com.reactive.nexo.Benchmark;
+import org.apache.commons.codec.binary.Base32;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TotpVerifierTest {
+
+    /** Secreto de los vectores de prueba del RFC 6238 (HMAC-SHA1). */
+    private static final byte[] RFC_SECRET = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+    private static final String RFC_SECRET_BASE32 = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+    @Test
+    void generatesRfc6238TestVectors() {
+        SecretKeySpec key = new SecretKeySpec(RFC_SECRET, "HmacSHA1");
+        // Apéndice B del RFC 6238 con 8 dígitos; aquí se usan los 6 últimos
+        long[] times = {59L, 1111111109L, 1111111111L, 1234567890L, 2000000000L, 20000000000L};
+        int[] codes = {287082, 81804, 50471, 5924, 279037, 353130};
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(codes[i], TotpVerifier.generateCode(key, times[i] / 30), "T = " + times[i]);
+        }
+    }
+
+    @Test
+    void decodesBase32Secrets() {
+        assertEquals(287082, TotpVerifier.generateCode(TotpVerifier.decodeKey(RFC_SECRET_BASE32), 1));
+    }
+
+    /** Reloj fijo a mitad de un paso, para que ningún test cruce el cambio de paso. */
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochSecond(1_700_000_015L), ZoneOffset.UTC);
+
+    @Test
+    void acceptsCurrentAndAdjacentSteps() {
+        TotpVerifier verifier = new TotpVerifier(1, 1000, CLOCK);
+        String secret = TwoFactorUtil.generateNewSecret();
+        long step = clockStep();
+        assertTrue(verifier.verify("1", secret, code(secret, step)));
+        assertTrue(verifier.verify("1", secret, code(secret, step - 1)));
+        assertTrue(verifier.verify("1", secret, code(secret, step + 1)));
+    }
+
+    @Test
+    void rejectsStepsOutsideTheWindow() {
+        TotpVerifier verifier = new TotpVerifier(1, 1000, CLOCK);
+        String secret = TwoFactorUtil.generateNewSecret();
+        long step = clockStep();
+        assertFalse(verifier.verify("1", secret, code(secret, step - 3)));
+        assertFalse(verifier.verify("1", secret, code(secret, step + 3)));
+
+        TotpVerifier strict = new TotpVerifier(0, 1000, CLOCK);
+        assertFalse(strict.verify("1", secret, code(secret, step - 2)));
+        assertFalse(strict.verify("1", secret, code(secret, step + 2)));
+    }
+
+    @Test
+    void rejectsReplayedCodeForTheSameEmployee() {
+        TotpVerifier verifier = new TotpVerifier(1, 1000, CLOCK);
+        String secret = TwoFactorUtil.generateNewSecret();
+        String code = code(secret, clockStep());
+
+        assertTrue(verifier.verify("1", secret, code));
+        assertFalse(verifier.verify("1", secret, code));
+        // Otro empleado con el mismo secreto no comparte el registro de códigos usados
+        assertTrue(verifier.verify("2", secret, code));
+        assertEquals(1L, verifier.snapshot().get("replays"));
+    }
+
+    @Test
+    void rejectsMalformedCodes() {
+        TotpVerifier verifier = new TotpVerifier(1, 1000);
+        String secret = TwoFactorUtil.generateNewSecret();
+        assertFalse(verifier.verify("1", secret, null));
+        assertFalse(verifier.verify("1", secret, "12345"));
+        assertFalse(verifier.verify("1", secret, "1234567"));
+        assertFalse(verifier.verify("1", secret, "12a456"));
+        assertFalse(verifier.verify("1", null, "123456"));
+        assertEquals(5L, verifier.snapshot().get("rejected"));
+    }
+
+    @Test
+    void rejectsEmptySecretsWithoutFailing() {
+        TotpVerifier verifier = new TotpVerifier(1, 1000);
+        assertFalse(verifier.verify("1", "", "123456"));
+        assertFalse(verifier.verify("1", "   ", "123456"));
+        assertFalse(verifier.verify("1", "========", "123456"));
+        assertEquals(3L, verifier.snapshot().get("rejected"));
+    }
+
+    @Test
+    void matchesPreviousTwoFactorUtil() throws Exception {
+        Random random = new Random(42);
+        Base32 base32 = new Base32();
+        for (int i = 0; i < 1000; i++) {
+            byte[] bytes = new byte[20];
+            random.nextBytes(bytes);
+            String secret = base32.encodeAsString(bytes);
+            long step = random.nextInt(Integer.MAX_VALUE);
+            assertEquals(legacyCode(secret, step),
+                String.format("%06d", TotpVerifier.generateCode(TotpVerifier.decodeKey(secret), step)));
+        }
+        String secret = TwoFactorUtil.generateNewSecret();
+        String before = legacyCode(secret, currentStep());
+        String current = TwoFactorUtil.getTOTPCode(secret);
+        String after = legacyCode(secret, currentStep());
+        assertTrue(current.equals(before) || current.equals(after));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = Benchmark.PROPERTY, matches = "true")
+    void benchmarkAgainstPreviousTwoFactorUtil() {
+        String[] secrets = new String[64];
+        SecretKeySpec[] keys = new SecretKeySpec[secrets.length];
+        for (int i = 0; i < secrets.length; i++) {
+            secrets[i] = TwoFactorUtil.generateNewSecret();
+            keys[i] = TotpVerifier.decodeKey(secrets[i]);
+        }
+        long step = currentStep();
+        double legacy = Benchmark.nanosPerOp("TOTP code, TwoFactorUtil (previous)", 50_000, i -> {
+            try {
+                return legacyCode(secrets[i & 63], step).hashCode();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        double optimized = Benchmark.nanosPerOp("TOTP code, TotpVerifier.generateCode", 50_000,
+            i -> TotpVerifier.generateCode(keys[i & 63], step));
+        TotpVerifier verifier = new TotpVerifier(1, 10_000);
+        Benchmark.nanosPerOp("TotpVerifier.verify (window 1, 3 codes)", 50_000,
+            i -> verifier.verify(null, secrets[i & 63], "000000") ? 1 : 0);
+        assertTrue(optimized < legacy, "generateCode should be faster than the previous implementation");
+    }
+
+    private static long clockStep() {
+        return CLOCK.millis() / 1000 / 30;
+    }
+
+    private static long currentStep() {
+        return System.currentTimeMillis() / 1000 / 30;
+    }
+
+    private static String code(String secret, long step) {
+        return String.format("%06d", TotpVerifier.generateCode(TotpVerifier.decodeKey(secret), step));
+    }
+
+    /**
+     * Cálculo de TwoFactorUtil antes de TotpVerifier: Base32 a hex y vuelta, un Mac
+     * nuevo por código y el resultado formateado como String.
+     */
+    private static String legacyCode(String secret, long step) throws Exception {
+        String hexKey = Hex.encodeHexString(new Base32().decode(secret));
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(Hex.decodeHex(hexKey), "HmacSHA1"));
+        byte[] hash = mac.doFinal(ByteBuffer.allocate(8).putLong(step).array());
+        int offset = hash[hash.length - 1] & 0xf;
+        long truncatedHash = 0;
+        for (int i = 0; i < 4; i++) {
+            truncatedHash <<= 8;
+            truncatedHash |= hash[offset + i] & 0xFF;
+        }
+        truncatedHash &= 0x7FFFFFFF;
+        truncatedHash %= 1000000;
+        return String.format("%06d", truncatedHash);
+    }
+}